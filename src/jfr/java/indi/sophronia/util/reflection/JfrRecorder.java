@@ -0,0 +1,60 @@
+package indi.sophronia.util.reflection;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder events of {@link MetaDataEvents}, compiled for Java 11 and only loaded
+ * reflectively when the JVM provides {@code jdk.jfr}
+ */
+final class JfrRecorder implements MetaDataEvents.Recorder {
+    JfrRecorder() {
+        // fails here rather than on first event if jdk.jfr is missing
+        new CacheMissEvent();
+    }
+
+    @Override
+    public void miss(Class<?> type) {
+        CacheMissEvent event = new CacheMissEvent();
+        if (event.shouldCommit()) {
+            event.type = type;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginRegistration() {
+        RegistrationEvent event = new RegistrationEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endRegistration(Object started, Class<?> type) {
+        RegistrationEvent event = (RegistrationEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.type = type;
+            event.commit();
+        }
+    }
+
+    @Name("indi.sophronia.reflection.CacheMiss")
+    @Label("Metadata Cache Miss")
+    @Category("Reflection Metadata")
+    @Description("Metadata of a class was not cached when it was registered")
+    @Enabled(false)
+    static final class CacheMissEvent extends Event {
+        @Label("Type")
+        Class<?> type;
+    }
+
+    @Name("indi.sophronia.reflection.Registration")
+    @Label("Metadata Registration")
+    @Category("Reflection Metadata")
+    @Description("Metadata of a class was built, supertypes not cached yet are built within it")
+    @Threshold("1 ms")
+    static final class RegistrationEvent extends Event {
+        @Label("Type")
+        Class<?> type;
+    }
+}
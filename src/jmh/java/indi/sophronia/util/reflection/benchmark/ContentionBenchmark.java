@@ -0,0 +1,51 @@
+package indi.sophronia.util.reflection.benchmark;
+
+import indi.sophronia.util.reflection.ReflectionMetaData;
+import indi.sophronia.util.reflection.types.Base;
+import indi.sophronia.util.reflection.types.Drived;
+import indi.sophronia.util.reflection.types.Drived2;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold registration from several threads at once. Every invocation loads the test fixture types
+ * through a fresh class loader, so each thread registers classes nobody has seen and the
+ * hierarchies of different threads only share JDK supertypes. Run with -t 1 .. N to see how
+ * throughput scales with cores
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark {
+    private static final String[] FIXTURES = {
+            Drived2.class.getName(), Drived.class.getName(), Base.class.getName()
+    };
+
+    private final URL fixtureLocation = Base.class.getProtectionDomain().getCodeSource().getLocation();
+    private final Class<?>[] fresh = new Class<?>[FIXTURES.length];
+
+    @Setup(Level.Invocation)
+    public void loadFresh() throws Exception {
+        // no parent: fixture types are defined again, JDK types come from the bootstrap loader
+        ClassLoader loader = new URLClassLoader(new URL[]{fixtureLocation}, null);
+        for (int i = 0; i < FIXTURES.length; i++) {
+            fresh[i] = loader.loadClass(FIXTURES[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(3)
+    public ReflectionMetaData registerFresh() {
+        ReflectionMetaData data = null;
+        for (Class<?> clazz : fresh) {
+            data = ReflectionMetaData.register(clazz);
+        }
+        return data;
+    }
+}
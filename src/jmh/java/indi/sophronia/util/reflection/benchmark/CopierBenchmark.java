@@ -0,0 +1,78 @@
+package indi.sophronia.util.reflection.benchmark;
+
+import indi.sophronia.util.reflection.BeanCopier;
+import indi.sophronia.util.reflection.BeanProperty;
+import indi.sophronia.util.reflection.ReflectionMetaData;
+import indi.sophronia.util.reflection.ReflectionUtils;
+import indi.sophronia.util.reflection.types.Dto;
+import indi.sophronia.util.reflection.types.Entity;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the properties {@link Entity} and {@link Dto} share by hand, with the compiled copier of
+ * {@link ReflectionUtils#copier} and with {@link Method#invoke} over the same getter / setter pairs
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CopierBenchmark {
+    private final Entity entity = new Entity();
+    private final Dto dto = new Dto();
+
+    private BeanCopier<Entity, Dto> copier;
+    private Method[] getters;
+    private Method[] setters;
+
+    @Setup(Level.Trial)
+    public void compile() {
+        entity.setId(42L);
+        entity.setName("entity");
+        entity.setVersion(3);
+        entity.setActive(true);
+        entity.setTags(Arrays.asList("a", "b"));
+        copier = ReflectionUtils.copier(Entity.class, Dto.class);
+
+        ReflectionMetaData target = ReflectionMetaData.register(Dto.class);
+        List<Method> getters = new ArrayList<>();
+        List<Method> setters = new ArrayList<>();
+        for (String name : Arrays.asList("id", "name", "version", "active")) {
+            BeanProperty property = ReflectionMetaData.register(Entity.class).findProperty(name);
+            getters.add(property.getGetter());
+            setters.add(target.findProperty(name).getSetter());
+        }
+        this.getters = getters.toArray(new Method[0]);
+        this.setters = setters.toArray(new Method[0]);
+    }
+
+    @Benchmark
+    public Dto handWritten() {
+        dto.setId(entity.getId());
+        dto.setName(entity.getName());
+        dto.setVersion(entity.getVersion());
+        dto.setActive(entity.isActive());
+        return dto;
+    }
+
+    @Benchmark
+    public Dto compiledCopier() throws Throwable {
+        copier.copy(entity, dto);
+        return dto;
+    }
+
+    @Benchmark
+    public Dto methodInvoke() throws ReflectiveOperationException {
+        for (int i = 0; i < getters.length; i++) {
+            setters[i].invoke(dto, getters[i].invoke(entity));
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,73 @@
+package indi.sophronia.util.reflection.benchmark;
+
+import indi.sophronia.util.reflection.Dispatcher;
+import indi.sophronia.util.reflection.ReflectionUtils;
+import indi.sophronia.util.reflection.types.StringHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dispatches messages of four classes to the overloads of {@link StringHandler#handle}: by an
+ * instanceof chain and through the inline cache of a {@link Dispatcher}. Cycling through more
+ * argument classes than the cache holds selects again on every call, the cost the cache saves
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+    private final StringHandler handler = new StringHandler();
+    private final Object[] messages = {"text", new StringBuilder("builder"), 1L, 2};
+    private final Class<?>[][] argumentTypes = new Class<?>[messages.length][];
+    private final Class<?>[][] manyArgumentTypes = {
+            {String.class}, {StringBuilder.class}, {StringBuffer.class}, {Object.class},
+            {Long.class}, {Integer.class}, {Short.class}, {Byte.class},
+            {Double.class}, {Float.class}, {BigInteger.class}, {BigDecimal.class},
+            {AtomicInteger.class}, {AtomicLong.class}, {Character.class}, {Boolean.class}};
+    private int next;
+
+    private Dispatcher dispatcher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dispatcher = ReflectionUtils.dispatcher(StringHandler.class, "handle");
+        for (int i = 0; i < messages.length; i++) {
+            argumentTypes[i] = new Class<?>[]{messages[i].getClass()};
+        }
+    }
+
+    @Benchmark
+    public String instanceofChain() {
+        Object message = messages[next++ & 3];
+        if (message instanceof String) {
+            return handler.handle((String) message);
+        }
+        if (message instanceof Number) {
+            return handler.handle((Number) message);
+        }
+        return handler.handle(message);
+    }
+
+    @Benchmark
+    public Method cachedResolve() {
+        return dispatcher.resolve(argumentTypes[next++ & 3]);
+    }
+
+    @Benchmark
+    public Object cachedInvoke() throws Throwable {
+        return dispatcher.invoke(handler, messages[next++ & 3]);
+    }
+
+    @Benchmark
+    public Method thrashingResolve() {
+        return dispatcher.resolve(manyArgumentTypes[next++ & 15]);
+    }
+}
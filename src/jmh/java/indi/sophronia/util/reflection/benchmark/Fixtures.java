@@ -0,0 +1,157 @@
+package indi.sophronia.util.reflection.benchmark;
+
+import indi.sophronia.util.reflection.ReflectionMetaData;
+import indi.sophronia.util.reflection.types.Base;
+import indi.sophronia.util.reflection.types.Drived;
+import indi.sophronia.util.reflection.types.Drived2;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Hierarchies for the benchmarks: a deep generic class chain, a wide set of generic interfaces
+ * with diamonds, and the heavily parameterized {@link Drived2} of the test fixtures
+ */
+public final class Fixtures {
+    private Fixtures() {
+    }
+
+    public static class Chain0<A, B> extends HashMap<A, B> {
+        public B value(A a) {
+            return get(a);
+        }
+    }
+
+    public static class Chain1<A, B> extends Chain0<B, A> {
+        @Override
+        public A value(B b) {
+            return super.value(b);
+        }
+    }
+
+    public static class Chain2<A, B> extends Chain1<B, List<A>> {
+    }
+
+    public static class Chain3<A, B> extends Chain2<A, B> {
+        @Override
+        public B value(List<A> a) {
+            return super.value(a);
+        }
+    }
+
+    public static class Chain4<A, B> extends Chain3<B, A> {
+    }
+
+    public static class Chain5<A, B> extends Chain4<A, B[]> {
+    }
+
+    public static class Chain6<A, B> extends Chain5<B, A> {
+        @Override
+        public B value(List<A[]> a) {
+            return super.value(a);
+        }
+    }
+
+    public static class Chain7<A, B> extends Chain6<A, B> {
+    }
+
+    public static class Chain8<A, B> extends Chain7<B, A> {
+    }
+
+    public static class Chain9<A, B> extends Chain8<A, B> {
+        @Override
+        public A value(List<B[]> b) {
+            return super.value(b);
+        }
+    }
+
+    public static class Chain10<A, B> extends Chain9<B, A> {
+    }
+
+    public static class Chain11<A, B> extends Chain10<A, B> {
+    }
+
+    public static class Chain12<A, B> extends Chain11<B, A> {
+    }
+
+    public static class Chain13<A, B> extends Chain12<A, B> {
+    }
+
+    public static class Chain14<A, B> extends Chain13<B, A> {
+    }
+
+    public static class Chain15 extends Chain14<String, Integer> {
+        @Override
+        public Integer value(List<String[]> a) {
+            return super.value(a);
+        }
+    }
+
+    public interface Wide0<T> {
+        T first(T t);
+    }
+
+    public interface Wide1<T> extends Wide0<T> {
+    }
+
+    public interface Wide2<T> {
+        List<T> all();
+    }
+
+    public interface Wide3<K, V> extends Wide1<K>, Wide2<V> {
+        V second(K k);
+    }
+
+    public interface Wide4<K, V> extends Wide3<V, K>, Serializable {
+    }
+
+    public interface Wide5<T> extends Wide1<T>, Comparable<T> {
+    }
+
+    public interface Wide6<K, V> extends Wide4<K, V>, Wide5<V> {
+    }
+
+    public interface Wide7<T> extends Wide2<T>, Iterable<T> {
+    }
+
+    public interface Wide8<K, V> extends Wide6<K, V>, Wide7<K> {
+    }
+
+    public interface Wide9<T> extends Wide8<T, T>, Cloneable {
+    }
+
+    public abstract static class WideImpl implements Wide9<String>, Wide3<String, String>, Runnable {
+        @Override
+        public String second(String s) {
+            return s;
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    public static final Class<?> DEEP = Chain15.class;
+    public static final Class<?> WIDE = WideImpl.class;
+    public static final Class<?> PARAMETERIZED = Drived2.class;
+
+    /**
+     * Classes of the fixtures and their supertypes defined here, evicted to measure cold paths.
+     * JDK supertypes stay cached, as they would in a running application
+     */
+    public static final List<Class<?>> OWN_CLASSES = new ArrayList<>();
+
+    static {
+        OWN_CLASSES.addAll(Arrays.asList(Fixtures.class.getClasses()));
+        OWN_CLASSES.addAll(Arrays.asList(Base.class, Drived.class, Drived2.class));
+    }
+
+    public static void evictAll() {
+        for (Class<?> clazz : OWN_CLASSES) {
+            ReflectionMetaData.evict(clazz);
+        }
+    }
+}
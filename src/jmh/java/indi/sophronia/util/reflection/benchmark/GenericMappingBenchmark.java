@@ -0,0 +1,59 @@
+package indi.sophronia.util.reflection.benchmark;
+
+import indi.sophronia.util.reflection.GenericTypeMapping;
+import indi.sophronia.util.reflection.ReflectionMetaData;
+import indi.sophronia.util.reflection.types.Base;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenericMappingBenchmark {
+    private ReflectionMetaData deep;
+    private ReflectionMetaData wide;
+    private ReflectionMetaData parameterized;
+
+    @Setup(Level.Trial)
+    public void register() {
+        deep = ReflectionMetaData.register(Fixtures.DEEP);
+        wide = ReflectionMetaData.register(Fixtures.WIDE);
+        parameterized = ReflectionMetaData.register(Fixtures.PARAMETERIZED);
+    }
+
+    @Benchmark
+    public GenericTypeMapping deepToRoot() {
+        return deep.actualTypeParameter(Fixtures.Chain0.class, 1);
+    }
+
+    @Benchmark
+    public GenericTypeMapping deepToJdk() {
+        return deep.actualTypeParameter(HashMap.class, 0);
+    }
+
+    @Benchmark
+    public GenericTypeMapping wideDiamond() {
+        return wide.actualTypeParameter(Fixtures.Wide0.class, 0);
+    }
+
+    @Benchmark
+    public GenericTypeMapping parameterized() {
+        return parameterized.actualTypeParameter(Base.class, 2);
+    }
+
+    @Benchmark
+    public GenericTypeMapping miss() {
+        return parameterized.actualTypeParameter(Comparable.class, 0);
+    }
+
+    @Benchmark
+    public GenericTypeMapping parameterizedJdk() {
+        return parameterized.actualTypeParameter(Map.class, 0);
+    }
+}
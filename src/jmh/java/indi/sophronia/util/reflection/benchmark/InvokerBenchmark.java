@@ -0,0 +1,88 @@
+package indi.sophronia.util.reflection.benchmark;
+
+import indi.sophronia.util.reflection.FieldAccessor;
+import indi.sophronia.util.reflection.MethodInvoker;
+import indi.sophronia.util.reflection.ReflectionUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares direct calls, {@link Method#invoke} and the compiled invokers of {@link ReflectionUtils}
+ * on an int getter / setter pair
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvokerBenchmark {
+    public static class Counter {
+        public int value;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    private final Counter counter = new Counter();
+    private int next;
+
+    private Method getter;
+    private Method setter;
+    private MethodInvoker getterInvoker;
+    private MethodInvoker setterInvoker;
+    private ToIntFunction<Counter> typedGetter;
+    private ObjIntConsumer<Counter> typedSetter;
+    private FieldAccessor accessor;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void compile() throws ReflectiveOperationException {
+        getter = Counter.class.getMethod("getValue");
+        setter = Counter.class.getMethod("setValue", int.class);
+        getterInvoker = ReflectionUtils.invoker(getter);
+        setterInvoker = ReflectionUtils.invoker(setter);
+        typedGetter = ReflectionUtils.invoker(getter, ToIntFunction.class);
+        typedSetter = ReflectionUtils.invoker(setter, ObjIntConsumer.class);
+        accessor = ReflectionUtils.accessor(Counter.class.getField("value"));
+    }
+
+    @Benchmark
+    public int direct() {
+        counter.setValue(next++);
+        return counter.getValue();
+    }
+
+    @Benchmark
+    public int methodInvoke() throws ReflectiveOperationException {
+        setter.invoke(counter, next++);
+        return (Integer) getter.invoke(counter);
+    }
+
+    @Benchmark
+    public int methodInvoker() throws Throwable {
+        setterInvoker.invoke(counter, next++);
+        return (Integer) getterInvoker.invoke(counter);
+    }
+
+    @Benchmark
+    public int typedInvoker() {
+        typedSetter.accept(counter, next++);
+        return typedGetter.applyAsInt(counter);
+    }
+
+    @Benchmark
+    public int fieldAccessor() throws Throwable {
+        accessor.setInt(counter, next++);
+        return accessor.getInt(counter);
+    }
+}
@@ -0,0 +1,62 @@
+package indi.sophronia.util.reflection.benchmark;
+
+import indi.sophronia.util.reflection.ReflectionMetaData;
+import indi.sophronia.util.reflection.ReflectionUtils;
+import indi.sophronia.util.reflection.types.Marker;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    @Param({"DEEP", "WIDE", "PARAMETERIZED"})
+    public String fixture;
+
+    private Class<?> type;
+    private ReflectionMetaData data;
+
+    @Setup(Level.Trial)
+    public void register() throws ReflectiveOperationException {
+        type = (Class<?>) Fixtures.class.getField(fixture).get(null);
+        data = ReflectionMetaData.register(type);
+    }
+
+    /**
+     * Worst case of the predicate search: the only match is declared by {@link Object}
+     */
+    @Benchmark
+    public Method findRequiredMethod() {
+        return ReflectionUtils.findRequiredMethod(type, m -> m.getName().equals("hashCode"));
+    }
+
+    @Benchmark
+    public Field findRequiredField() {
+        return ReflectionUtils.findRequiredField(type, f -> f.getName().equals("serialVersionUID"));
+    }
+
+    @Benchmark
+    public Method findMethodIndexed() {
+        return data.findMethod("hashCode");
+    }
+
+    /**
+     * Only the parameterized fixture has a marked method, the others scan every member in vain
+     */
+    @Benchmark
+    public Method findAnnotatedMethod() {
+        return ReflectionUtils.findRequiredMethod(type, m -> m.isAnnotationPresent(Marker.class));
+    }
+
+    @Benchmark
+    public Member[] membersAnnotatedWith() {
+        return data.membersAnnotatedWith(Marker.class);
+    }
+}
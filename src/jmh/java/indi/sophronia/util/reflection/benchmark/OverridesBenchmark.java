@@ -0,0 +1,66 @@
+package indi.sophronia.util.reflection.benchmark;
+
+import indi.sophronia.util.reflection.ReflectionUtils;
+import indi.sophronia.util.reflection.types.Base;
+import indi.sophronia.util.reflection.types.Drived2;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverridesBenchmark {
+    private Method mapPut;
+    private Method basePut;
+    private Method drived2Put;
+    private Method rootValue;
+    private Method deepValue;
+    private Method wideSecond;
+
+    @Setup(Level.Trial)
+    public void resolve() throws NoSuchMethodException {
+        mapPut = Map.class.getDeclaredMethod("put", Object.class, Object.class);
+        basePut = Base.class.getDeclaredMethod("put", Number.class, Integer.class);
+        drived2Put = Drived2.class.getDeclaredMethod("put", Double.class, Integer.class);
+        rootValue = Fixtures.Chain0.class.getDeclaredMethod("value", Object.class);
+        deepValue = Fixtures.Chain15.class.getDeclaredMethod("value", List.class);
+        wideSecond = Fixtures.WideImpl.class.getDeclaredMethod("second", String.class);
+    }
+
+    @Benchmark
+    public boolean overridesJdk() {
+        return ReflectionUtils.overrides(mapPut, drived2Put);
+    }
+
+    @Benchmark
+    public boolean overridesGeneric() {
+        return ReflectionUtils.overrides(basePut, drived2Put);
+    }
+
+    @Benchmark
+    public boolean overridesDeep() {
+        return ReflectionUtils.overrides(rootValue, deepValue);
+    }
+
+    @Benchmark
+    public Method[] findBaseMethodsParameterized() {
+        return ReflectionUtils.findBaseMethods(drived2Put);
+    }
+
+    @Benchmark
+    public Method[] findBaseMethodsDeep() {
+        return ReflectionUtils.findBaseMethods(deepValue);
+    }
+
+    @Benchmark
+    public Method[] findBaseMethodsWide() {
+        return ReflectionUtils.findBaseMethods(wideSecond);
+    }
+}
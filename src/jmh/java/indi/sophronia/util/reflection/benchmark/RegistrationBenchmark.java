@@ -0,0 +1,92 @@
+package indi.sophronia.util.reflection.benchmark;
+
+import indi.sophronia.util.reflection.ReflectionMetaData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold registration builds the fixture hierarchy again after evicting it, warm registration
+ * is a cache hit. JDK supertypes of the fixtures stay cached in both cases
+ */
+public class RegistrationBenchmark {
+    @State(Scope.Thread)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public static class Cold {
+        @Param({"DEEP", "WIDE", "PARAMETERIZED"})
+        public String fixture;
+
+        private Class<?> type;
+
+        @Setup(Level.Trial)
+        public void resolveFixture() throws ReflectiveOperationException {
+            type = (Class<?>) Fixtures.class.getField(fixture).get(null);
+        }
+
+        @Setup(Level.Invocation)
+        public void evict() {
+            Fixtures.evictAll();
+        }
+
+        @Benchmark
+        public ReflectionMetaData register() {
+            return ReflectionMetaData.register(type);
+        }
+    }
+
+    /**
+     * Cold registration of all fixture classes, one by one against {@link ReflectionMetaData#registerAll}
+     */
+    @State(Scope.Thread)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public static class Bulk {
+        @Setup(Level.Invocation)
+        public void evict() {
+            Fixtures.evictAll();
+        }
+
+        @Benchmark
+        public void serial() {
+            for (Class<?> clazz : Fixtures.OWN_CLASSES) {
+                ReflectionMetaData.register(clazz);
+            }
+        }
+
+        @Benchmark
+        public void registerAll() {
+            ReflectionMetaData.registerAll(Fixtures.OWN_CLASSES);
+        }
+    }
+
+    @State(Scope.Thread)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public static class Warm {
+        @Param({"DEEP", "WIDE", "PARAMETERIZED"})
+        public String fixture;
+
+        private Class<?> type;
+
+        @Setup(Level.Trial)
+        public void register() throws ReflectiveOperationException {
+            type = (Class<?>) Fixtures.class.getField(fixture).get(null);
+            ReflectionMetaData.register(type);
+        }
+
+        @Benchmark
+        public ReflectionMetaData registerCached() {
+            return ReflectionMetaData.register(type);
+        }
+    }
+}
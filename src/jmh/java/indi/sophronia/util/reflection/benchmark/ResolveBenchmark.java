@@ -0,0 +1,41 @@
+package indi.sophronia.util.reflection.benchmark;
+
+import indi.sophronia.util.reflection.ReflectionMetaData;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolution of a member type nested through several parameterized supertypes,
+ * cached per member and context against resolving on every call
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolveBenchmark {
+    private Method value;
+    private Type parameterType;
+
+    @Setup(Level.Trial)
+    public void lookup() throws NoSuchMethodException {
+        value = Fixtures.Chain6.class.getDeclaredMethod("value", List.class);
+        parameterType = value.getGenericParameterTypes()[0];
+        ReflectionMetaData.register(Fixtures.DEEP);
+    }
+
+    @Benchmark
+    public Type[] cachedParameterTypes() {
+        return ReflectionMetaData.resolveParameterTypes(value, Fixtures.DEEP);
+    }
+
+    @Benchmark
+    public Type uncachedParameterType() {
+        return ReflectionMetaData.resolve(parameterType, Fixtures.DEEP);
+    }
+}
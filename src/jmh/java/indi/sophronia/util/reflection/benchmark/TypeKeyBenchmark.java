@@ -0,0 +1,67 @@
+package indi.sophronia.util.reflection.benchmark;
+
+import indi.sophronia.util.reflection.Types;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up generic types in a hash map keyed by types: with equal types freshly reflected, hashed
+ * and compared structurally on every lookup, and with their canonical instances, found by identity
+ * with a precomputed hash
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeKeyBenchmark {
+    private final Map<Type, Integer> byType = new HashMap<>();
+    private final Map<Type, Integer> byCanonicalType = new HashMap<>();
+    private Type[] reflected;
+    private Type[] canonical;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchMethodException {
+        Method[] methods = {
+                Map.class.getMethod("entrySet"),
+                Map.class.getMethod("keySet"),
+                Map.class.getMethod("compute", Object.class, java.util.function.BiFunction.class),
+                Map.class.getMethod("forEach", java.util.function.BiConsumer.class)};
+        reflected = new Type[methods.length];
+        canonical = new Type[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            Type type = genericType(method);
+            byType.put(type, i);
+            // an equal instance, not the key itself
+            reflected[i] = genericType(method);
+            canonical[i] = Types.canonical(type);
+            byCanonicalType.put(canonical[i], i);
+        }
+    }
+
+    /**
+     * @return The last generic parameter type, the generic return type without parameters
+     */
+    private static Type genericType(Method method) {
+        int count = method.getParameterCount();
+        return count > 0 ? method.getGenericParameterTypes()[count - 1] : method.getGenericReturnType();
+    }
+
+    @Benchmark
+    public Integer reflectedKey() {
+        return byType.get(reflected[next++ & 3]);
+    }
+
+    @Benchmark
+    public Integer canonicalKey() {
+        return byCanonicalType.get(canonical[next++ & 3]);
+    }
+}
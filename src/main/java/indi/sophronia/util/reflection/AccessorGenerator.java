@@ -0,0 +1,346 @@
+package indi.sophronia.util.reflection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates a {@link FieldAccessor} class per field, holding the exactly typed handles of the field in
+ * static final fields, which the JIT treats as constants and inlines down to the field access.
+ * Each class is defined by its own loader, so it is unloaded with its accessor and never keeps the
+ * class declaring the field reachable beyond it
+ */
+final class AccessorGenerator {
+    private static final String NAME = "indi/sophronia/util/reflection/FieldAccessor$Generated";
+    private static final String SUPER = "indi/sophronia/util/reflection/FieldAccessor";
+    private static final String HANDLE = "java/lang/invoke/MethodHandle";
+    private static final String HANDLE_DESCRIPTOR = "L" + HANDLE + ";";
+
+    private AccessorGenerator() {
+    }
+
+    /**
+     * Defines the generated class, its static initializer takes the handles from the loader
+     */
+    static final class Loader extends ClassLoader {
+        final MethodHandle[] handles;
+
+        Loader(MethodHandle[] handles) {
+            super(FieldAccessor.class.getClassLoader());
+            this.handles = handles;
+        }
+
+        Class<?> define(byte[] bytes) {
+            return defineClass(NAME.replace('/', '.'), bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * @param field field reported by the accessor
+     * @param accessible the field or an accessible copy of it
+     */
+    static FieldAccessor generate(Field field, Field accessible, MethodHandles.Lookup lookup)
+            throws ReflectiveOperationException {
+        Class<?> fieldType = field.getType();
+        Class<?> type = fieldType.isPrimitive() ? fieldType : Object.class;
+        boolean isStatic = Modifier.isStatic(field.getModifiers());
+        boolean isFinal = Modifier.isFinal(field.getModifiers());
+
+        List<MethodHandle> handles = new ArrayList<>();
+        MethodHandle get = lookup.unreflectGetter(accessible);
+        if (isStatic) {
+            get = MethodHandles.dropArguments(get, 0, Object.class);
+        }
+        get = get.asType(MethodType.methodType(type, Object.class));
+        handles.add(get);
+        handles.add(get.asType(MethodType.methodType(Object.class, Object.class)));
+        if (!isFinal) {
+            MethodHandle set = lookup.unreflectSetter(accessible);
+            if (isStatic) {
+                set = MethodHandles.dropArguments(set, 0, Object.class);
+            }
+            set = set.asType(MethodType.methodType(void.class, Object.class, type));
+            handles.add(set);
+            handles.add(set.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        }
+
+        ClassWriter writer = new ClassWriter();
+        writer.constructor();
+        writer.staticInitializer(handles.size());
+        writer.getter("get", "Ljava/lang/Object;", 1);
+        if (!isFinal) {
+            writer.setter("set", "Ljava/lang/Object;", 3);
+        }
+        if (fieldType.isPrimitive()) {
+            String name = Character.toUpperCase(fieldType.getName().charAt(0)) + fieldType.getName().substring(1);
+            String descriptor = MethodType.methodType(fieldType).toMethodDescriptorString().substring(2);
+            writer.getter("get" + name, descriptor, 0);
+            if (!isFinal) {
+                writer.setter("set" + name, descriptor, 2);
+            }
+        }
+
+        Class<?> generated = new Loader(handles.toArray(new MethodHandle[0])).define(writer.toBytes());
+        return (FieldAccessor) generated.getConstructor(Field.class).newInstance(field);
+    }
+
+    /**
+     * Class file of the accessor, Java 8 format. Methods have no branches, so they need no stack map
+     */
+    private static final class ClassWriter {
+        private static final int ACC_PUBLIC = 0x0001;
+        private static final int ACC_PRIVATE = 0x0002;
+        private static final int ACC_STATIC = 0x0008;
+        private static final int ACC_FINAL = 0x0010;
+        private static final int ACC_SUPER = 0x0020;
+
+        private static final int ALOAD_0 = 0x2a;
+        private static final int ALOAD_1 = 0x2b;
+        private static final int DUP = 0x59;
+        private static final int POP = 0x57;
+        private static final int AALOAD = 0x32;
+        private static final int BIPUSH = 0x10;
+        private static final int LDC_W = 0x13;
+        private static final int GETSTATIC = 0xb2;
+        private static final int PUTSTATIC = 0xb3;
+        private static final int INVOKEVIRTUAL = 0xb6;
+        private static final int INVOKESPECIAL = 0xb7;
+        private static final int INVOKESTATIC = 0xb8;
+        private static final int RETURN = 0xb1;
+
+        private final Map<String, Integer> constants = new HashMap<>();
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        private final DataOutputStream poolOut = new DataOutputStream(pool);
+        private int poolSize = 1;
+
+        private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+        private final DataOutputStream methodsOut = new DataOutputStream(methods);
+        private int methodCount;
+        private int fieldCount;
+
+        /**
+         * Handle fields, 0: typed getter, 1: boxed getter, 2: typed setter, 3: boxed setter
+         */
+        private int handleField(int index) {
+            return fieldRef(NAME, "H" + index, HANDLE_DESCRIPTOR);
+        }
+
+        void constructor() {
+            Code code = new Code();
+            code.op(ALOAD_0).op(ALOAD_1).op(INVOKESPECIAL)
+                    .u2(methodRef(SUPER, "<init>", "(Ljava/lang/reflect/Field;)V")).op(RETURN);
+            method(ACC_PUBLIC, "<init>", "(Ljava/lang/reflect/Field;)V", code, 2, 2);
+        }
+
+        void staticInitializer(int handles) {
+            fieldCount = handles;
+            Code code = new Code();
+            code.op(LDC_W).u2(classRef(NAME)).op(INVOKESTATIC)
+                    .u2(methodRef(SUPER, "handles", "(Ljava/lang/Class;)[" + HANDLE_DESCRIPTOR));
+            for (int i = 0; i < handles; i++) {
+                code.op(DUP).op(BIPUSH).op(i).op(AALOAD).op(PUTSTATIC).u2(handleField(i));
+            }
+            code.op(POP).op(RETURN);
+            method(ACC_STATIC, "<clinit>", "()V", code, 3, 0);
+        }
+
+        /**
+         * {@code return (T) H[handle].invokeExact(target)}
+         */
+        void getter(String name, String valueDescriptor, int handle) {
+            String descriptor = "(Ljava/lang/Object;)" + valueDescriptor;
+            Code code = new Code();
+            code.op(GETSTATIC).u2(handleField(handle)).op(ALOAD_1)
+                    .op(INVOKEVIRTUAL).u2(methodRef(HANDLE, "invokeExact", descriptor))
+                    .op(returnOpcode(valueDescriptor));
+            method(ACC_PUBLIC, name, descriptor, code, 2, 2);
+        }
+
+        /**
+         * {@code H[handle].invokeExact(target, value)}
+         */
+        void setter(String name, String valueDescriptor, int handle) {
+            String descriptor = "(Ljava/lang/Object;" + valueDescriptor + ")V";
+            int size = valueDescriptor.equals("J") || valueDescriptor.equals("D") ? 2 : 1;
+            Code code = new Code();
+            code.op(GETSTATIC).u2(handleField(handle)).op(ALOAD_1).op(loadOpcode(valueDescriptor))
+                    .op(INVOKEVIRTUAL).u2(methodRef(HANDLE, "invokeExact", descriptor)).op(RETURN);
+            method(ACC_PUBLIC, name, descriptor, code, 2 + size, 2 + size);
+        }
+
+        /**
+         * Loads of local 2 and returns by descriptor
+         */
+        private static int loadOpcode(String descriptor) {
+            switch (descriptor.charAt(0)) {
+                case 'J':
+                    return 0x20;
+                case 'F':
+                    return 0x24;
+                case 'D':
+                    return 0x28;
+                case 'L':
+                    return 0x2c;
+                default:
+                    return 0x1c;
+            }
+        }
+
+        private static int returnOpcode(String descriptor) {
+            switch (descriptor.charAt(0)) {
+                case 'J':
+                    return 0xad;
+                case 'F':
+                    return 0xae;
+                case 'D':
+                    return 0xaf;
+                case 'L':
+                    return 0xb0;
+                default:
+                    return 0xac;
+            }
+        }
+
+        private void method(int access, String name, String descriptor, Code code, int maxStack, int maxLocals) {
+            int codeAttribute = utf8("Code");
+            try {
+                methodsOut.writeShort(access);
+                methodsOut.writeShort(utf8(name));
+                methodsOut.writeShort(utf8(descriptor));
+                methodsOut.writeShort(1);
+                methodsOut.writeShort(codeAttribute);
+                methodsOut.writeInt(12 + code.size());
+                methodsOut.writeShort(maxStack);
+                methodsOut.writeShort(maxLocals);
+                methodsOut.writeInt(code.size());
+                code.writeTo(methodsOut);
+                methodsOut.writeShort(0);
+                methodsOut.writeShort(0);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            methodCount++;
+        }
+
+        byte[] toBytes() {
+            int thisClass = classRef(NAME);
+            int superClass = classRef(SUPER);
+            int[] fieldNames = new int[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                fieldNames[i] = utf8("H" + i);
+            }
+            int handleDescriptor = utf8(HANDLE_DESCRIPTOR);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(52);
+                out.writeShort(poolSize);
+                pool.writeTo(out);
+                out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(0);
+                out.writeShort(fieldCount);
+                for (int fieldName : fieldNames) {
+                    out.writeShort(ACC_PRIVATE | ACC_STATIC | ACC_FINAL);
+                    out.writeShort(fieldName);
+                    out.writeShort(handleDescriptor);
+                    out.writeShort(0);
+                }
+                out.writeShort(methodCount);
+                methods.writeTo(out);
+                out.writeShort(0);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        private int utf8(String value) {
+            Integer index = constants.get(value);
+            if (index == null) {
+                try {
+                    poolOut.writeByte(1);
+                    poolOut.writeUTF(value);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                index = poolSize++;
+                constants.put(value, index);
+            }
+            return index;
+        }
+
+        private int classRef(String name) {
+            return constant("Class " + name, 7, utf8(name), -1);
+        }
+
+        private int nameAndType(String name, String descriptor) {
+            return constant("NameAndType " + name + " " + descriptor, 12, utf8(name), utf8(descriptor));
+        }
+
+        private int fieldRef(String owner, String name, String descriptor) {
+            return constant("Field " + owner + "." + name, 9, classRef(owner), nameAndType(name, descriptor));
+        }
+
+        private int methodRef(String owner, String name, String descriptor) {
+            return constant("Method " + owner + "." + name + descriptor, 10,
+                    classRef(owner), nameAndType(name, descriptor));
+        }
+
+        /**
+         * @param second -1 for constants with a single index
+         */
+        private int constant(String key, int tag, int first, int second) {
+            // keys hold a space, so they never collide with utf8 constants of names and descriptors
+            Integer index = constants.get(key);
+            if (index == null) {
+                try {
+                    poolOut.writeByte(tag);
+                    poolOut.writeShort(first);
+                    if (second >= 0) {
+                        poolOut.writeShort(second);
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                index = poolSize++;
+                constants.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    private static final class Code {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Code op(int opcode) {
+            bytes.write(opcode);
+            return this;
+        }
+
+        Code u2(int value) {
+            bytes.write(value >>> 8);
+            bytes.write(value);
+            return this;
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+    }
+}
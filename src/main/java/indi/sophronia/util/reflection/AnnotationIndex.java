@@ -0,0 +1,128 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * Annotated members of a class and all its super classes and interfaces, by annotation type.
+ * A method carries its own annotations and those of the methods it overrides, its own ones win;
+ * overridden methods and bridge methods are not listed, as the overriding method stands for them
+ */
+final class AnnotationIndex {
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+    private static final Member[] NO_MEMBERS = new Member[0];
+
+    private final Map<Class<? extends Annotation>, Method[]> methods;
+    private final Map<Class<? extends Annotation>, Field[]> fields;
+    private final Map<Class<? extends Annotation>, Member[]> members;
+
+    /**
+     * Merged annotations of every hierarchy method having any
+     */
+    private final Map<Method, Annotation[]> methodAnnotations;
+
+    AnnotationIndex(ReflectionMetaData data) {
+        Method[] hierarchyMethods = data.memberIndex().methods();
+        Map<Method, Method[]> baseMethods = new HashMap<>(hierarchyMethods.length * 2);
+        Set<Method> overridden = new HashSet<>();
+        for (Method method : hierarchyMethods) {
+            Method[] bases =
+                    ReflectionMetaData.register(method.getDeclaringClass()).overrideGraph().bases(method);
+            baseMethods.put(method, bases);
+            overridden.addAll(Arrays.asList(bases));
+        }
+
+        this.methodAnnotations = new HashMap<>();
+        Map<Class<? extends Annotation>, List<Method>> annotatedMethods = new LinkedHashMap<>();
+        Map<Class<? extends Annotation>, List<Member>> annotatedMembers = new LinkedHashMap<>();
+        for (Method method : hierarchyMethods) {
+            Annotation[] merged = merge(method, baseMethods.get(method));
+            if (merged.length == 0) {
+                continue;
+            }
+            methodAnnotations.put(method, merged);
+            if (method.isBridge() || overridden.contains(method)) {
+                continue;
+            }
+            for (Annotation annotation : merged) {
+                annotatedMethods.computeIfAbsent(annotation.annotationType(), k -> new ArrayList<>()).add(method);
+                annotatedMembers.computeIfAbsent(annotation.annotationType(), k -> new ArrayList<>()).add(method);
+            }
+        }
+
+        Map<Class<? extends Annotation>, List<Field>> annotatedFields = new LinkedHashMap<>();
+        for (Field field : data.memberIndex().fields()) {
+            for (Annotation annotation : field.getDeclaredAnnotations()) {
+                annotatedFields.computeIfAbsent(annotation.annotationType(), k -> new ArrayList<>()).add(field);
+                annotatedMembers.computeIfAbsent(annotation.annotationType(), k -> new ArrayList<>()).add(field);
+            }
+        }
+
+        this.methods = new HashMap<>(annotatedMethods.size() * 2);
+        annotatedMethods.forEach((type, list) -> methods.put(type, list.toArray(MemberIndex.NO_METHODS)));
+        this.fields = new HashMap<>(annotatedFields.size() * 2);
+        annotatedFields.forEach((type, list) -> fields.put(type, list.toArray(MemberIndex.NO_FIELDS)));
+        this.members = new HashMap<>(annotatedMembers.size() * 2);
+        annotatedMembers.forEach((type, list) -> members.put(type, list.toArray(NO_MEMBERS)));
+    }
+
+    private static Annotation[] merge(Method method, Method[] bases) {
+        Annotation[] own = method.getDeclaredAnnotations();
+        List<Annotation> merged = null;
+        for (Method base : bases) {
+            for (Annotation inherited : base.getDeclaredAnnotations()) {
+                List<Annotation> present = merged != null ? merged : Arrays.asList(own);
+                if (!containsType(present, inherited.annotationType())) {
+                    if (merged == null) {
+                        merged = new ArrayList<>(present);
+                    }
+                    merged.add(inherited);
+                }
+            }
+        }
+        if (merged != null) {
+            return merged.toArray(NO_ANNOTATIONS);
+        }
+        return own.length == 0 ? NO_ANNOTATIONS : own;
+    }
+
+    private static boolean containsType(List<Annotation> annotations, Class<? extends Annotation> type) {
+        for (Annotation annotation : annotations) {
+            if (annotation.annotationType() == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    Method[] methods(Class<? extends Annotation> annotationType) {
+        return methods.getOrDefault(annotationType, MemberIndex.NO_METHODS);
+    }
+
+    Field[] fields(Class<? extends Annotation> annotationType) {
+        return fields.getOrDefault(annotationType, MemberIndex.NO_FIELDS);
+    }
+
+    Member[] members(Class<? extends Annotation> annotationType) {
+        return members.getOrDefault(annotationType, NO_MEMBERS);
+    }
+
+    /**
+     * @return Annotation of the method or of a method it overrides, null if none has it
+     *         or the method is not in the hierarchy
+     */
+    <A extends Annotation> A annotation(Method method, Class<A> annotationType) {
+        Annotation[] annotations = methodAnnotations.get(method);
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                if (annotation.annotationType() == annotationType) {
+                    return annotationType.cast(annotation);
+                }
+            }
+        }
+        return null;
+    }
+}
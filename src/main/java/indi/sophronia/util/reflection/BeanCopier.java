@@ -0,0 +1,12 @@
+package indi.sophronia.util.reflection;
+
+/**
+ * Compiled copy of the bean properties two types share, see {@link ReflectionUtils#copier(Class, Class)}
+ */
+@FunctionalInterface
+public interface BeanCopier<S, T> {
+    /**
+     * Exceptions thrown by getters and setters are propagated as they are
+     */
+    void copy(S source, T target) throws Throwable;
+}
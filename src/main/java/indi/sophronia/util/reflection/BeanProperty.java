@@ -0,0 +1,61 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+/**
+ * Getter and setter pair of a bean property, with the property type resolved against the class
+ * the property was introspected on, see {@link ReflectionMetaData#getProperties()}
+ */
+public final class BeanProperty {
+    private final String name;
+    private final Method getter;
+    private final Method setter;
+    private final Type type;
+
+    BeanProperty(String name, Method getter, Method setter, Type type) {
+        this.name = name;
+        this.getter = getter;
+        this.setter = setter;
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return null for write-only properties
+     */
+    public Method getGetter() {
+        return getter;
+    }
+
+    /**
+     * @return null for read-only properties
+     */
+    public Method getSetter() {
+        return setter;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Class<?> getRawType() {
+        return TypeResolver.erasure(type);
+    }
+
+    public boolean isReadable() {
+        return getter != null;
+    }
+
+    public boolean isWritable() {
+        return setter != null;
+    }
+
+    @Override
+    public String toString() {
+        return type.getTypeName() + " " + name;
+    }
+}
@@ -0,0 +1,63 @@
+package indi.sophronia.util.reflection;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Values keyed by classes, kept with the metadata of an owner class. Keys defined by the owner's
+ * loader or one of its ancestors are held in a map, they outlive the owner anyway. Values of other
+ * keys, e.g. classes of a child loader, are stored with the key in a {@link ClassValue}, so the
+ * owner never keeps the key's loader reachable
+ */
+final class ClassKeyedCache<V> {
+    private final ClassLoader ownerLoader;
+    private final Function<Class<?>, V> factory;
+    private final ConcurrentMap<Class<?>, V> visible = new ConcurrentHashMap<>();
+    private final ClassValue<V> foreign = new ClassValue<V>() {
+        @Override
+        protected V computeValue(Class<?> type) {
+            return factory.apply(type);
+        }
+    };
+
+    ClassKeyedCache(Class<?> owner, Function<Class<?>, V> factory) {
+        this.ownerLoader = owner.getClassLoader();
+        this.factory = factory;
+    }
+
+    V get(Class<?> key) {
+        V value = visible.get(key);
+        if (value != null) {
+            return value;
+        }
+        if (isAncestorOf(key.getClassLoader(), ownerLoader)) {
+            return visible.computeIfAbsent(key, factory);
+        }
+        return foreign.get(key);
+    }
+
+    /**
+     * Drops the value of the key, it is created again on next {@link #get}
+     */
+    void remove(Class<?> key) {
+        visible.remove(key);
+        foreign.remove(key);
+    }
+
+    /**
+     * @return true if the loader is the other loader or one of its ancestors, the bootstrap loader
+     *         (null) being the ancestor of all loaders
+     */
+    private static boolean isAncestorOf(ClassLoader loader, ClassLoader other) {
+        if (loader == null) {
+            return true;
+        }
+        for (ClassLoader l = other; l != null; l = l.getParent()) {
+            if (l == loader) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
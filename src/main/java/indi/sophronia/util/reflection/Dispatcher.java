@@ -0,0 +1,285 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selects the most specific method of a name for runtime argument classes, see
+ * {@link ReflectionUtils#dispatcher(Class, String)}. Parameter types are those of the methods as
+ * seen from the class, type variables bound by the hierarchy replaced by their actual types.
+ * A method applies if every argument class is a subtype of its parameter type and a null argument
+ * applies to any reference type. A primitive argument class, which {@link #resolve} accepts, applies
+ * to the same primitive type. Like overload resolution in the language, methods only applicable by
+ * unboxing a wrapper into a primitive parameter or boxing a primitive into a reference parameter
+ * are only considered when no method applies without.
+ * Selections are kept in a small inline cache keyed weakly by the argument classes, the least
+ * recently added selection is dropped when it is full
+ */
+public final class Dispatcher {
+    /**
+     * Bound of the inline cache, argument class tuples beyond it are selected again on every call
+     */
+    static final int CACHE_SIZE = 8;
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    private static final class ArgumentReference extends WeakReference<Class<?>> {
+        ArgumentReference(Class<?> referent) {
+            super(referent);
+        }
+    }
+
+    private static final class Entry {
+        /**
+         * Argument classes, null for null arguments. Held weakly, so the cache of a long-lived class
+         * never keeps classes of an unloaded loader reachable; cleared references match no arguments
+         */
+        final ArgumentReference[] key;
+
+        /**
+         * null if no method applies
+         */
+        final Method method;
+
+        /**
+         * Created on first invocation, racy but idempotent
+         */
+        MethodInvoker invoker;
+
+        Entry(Class<?>[] argumentTypes, Method method) {
+            this.key = new ArgumentReference[argumentTypes.length];
+            for (int i = 0; i < argumentTypes.length; i++) {
+                key[i] = argumentTypes[i] != null ? new ArgumentReference(argumentTypes[i]) : null;
+            }
+            this.method = method;
+        }
+    }
+
+    private final Class<?> type;
+    private final String name;
+
+    /**
+     * Candidate methods by parameter count, most derived first, overridden methods removed
+     */
+    private final Method[][] candidates;
+    private final Class<?>[][][] parameterTypes;
+
+    private volatile Entry[] cache = EMPTY;
+
+    Dispatcher(ReflectionMetaData data, Class<?> type, String name) {
+        this.type = type;
+        this.name = name;
+        List<List<Method>> candidates = new ArrayList<>();
+        List<List<Class<?>[]>> parameterTypes = new ArrayList<>();
+        for (Method method : data.memberIndex().methodsNamed(name)) {
+            if (method.isBridge() || method.isSynthetic()) {
+                continue;
+            }
+            int count = method.getParameterCount();
+            while (candidates.size() <= count) {
+                candidates.add(new ArrayList<>());
+                parameterTypes.add(new ArrayList<>());
+            }
+            Class<?>[] erased = erasedParameterTypes(data, method);
+            boolean overridden = false;
+            for (Class<?>[] other : parameterTypes.get(count)) {
+                overridden |= Arrays.equals(other, erased);
+            }
+            if (!overridden) {
+                candidates.get(count).add(method);
+                parameterTypes.get(count).add(erased);
+            }
+        }
+        this.candidates = new Method[candidates.size()][];
+        this.parameterTypes = new Class<?>[candidates.size()][][];
+        for (int i = 0; i < this.candidates.length; i++) {
+            this.candidates[i] = candidates.get(i).toArray(MemberIndex.NO_METHODS);
+            this.parameterTypes[i] = parameterTypes.get(i).toArray(new Class<?>[0][]);
+        }
+    }
+
+    private static Class<?>[] erasedParameterTypes(ReflectionMetaData data, Method method) {
+        Type[] resolved = data.resolvedParameterTypes(method);
+        Class<?>[] erased = new Class<?>[resolved.length];
+        for (int i = 0; i < resolved.length; i++) {
+            erased[i] = TypeResolver.erasure(resolved[i]);
+        }
+        return erased;
+    }
+
+    /**
+     * @param argumentTypes runtime classes of the arguments, null for null arguments, or primitive
+     *                      classes for primitive values
+     * @return Most specific applicable method, null if none applies
+     * @throws IllegalArgumentException if several applicable methods are equally specific
+     */
+    public Method resolve(Class<?>... argumentTypes) {
+        Entry[] entries = cache;
+        for (Entry entry : entries) {
+            if (matches(entry.key, argumentTypes)) {
+                return entry.method;
+            }
+        }
+        return miss(entries, argumentTypes).method;
+    }
+
+    /**
+     * Invokes the most specific method applicable to the classes of the arguments
+     * @param target receiver, ignored for static methods
+     * @throws IllegalArgumentException if no method applies or several are equally specific
+     */
+    public Object invoke(Object target, Object... args) throws Throwable {
+        Entry entry = lookup(args);
+        if (entry.method == null) {
+            throw new IllegalArgumentException("no method " + name + " of " + type + " applies to " +
+                    Arrays.toString(argumentTypes(args)));
+        }
+        MethodInvoker invoker = entry.invoker;
+        if (invoker == null) {
+            invoker = ReflectionUtils.invoker(entry.method);
+            entry.invoker = invoker;
+        }
+        return invoker.invoke(target, args);
+    }
+
+    private Entry lookup(Object[] args) {
+        Entry[] entries = cache;
+        for (Entry entry : entries) {
+            if (matches(entry.key, args)) {
+                return entry;
+            }
+        }
+        return miss(entries, argumentTypes(args));
+    }
+
+    private static Class<?>[] argumentTypes(Object[] args) {
+        Class<?>[] argumentTypes = new Class<?>[args.length];
+        for (int i = 0; i < args.length; i++) {
+            argumentTypes[i] = args[i] != null ? args[i].getClass() : null;
+        }
+        return argumentTypes;
+    }
+
+    private static boolean matches(ArgumentReference[] key, Object[] args) {
+        if (key.length != args.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            Object arg = args[i];
+            if (!matches(key[i], arg != null ? arg.getClass() : null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(ArgumentReference[] key, Class<?>[] argumentTypes) {
+        if (key.length != argumentTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (!matches(key[i], argumentTypes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(ArgumentReference ref, Class<?> argumentType) {
+        return ref == null ? argumentType == null : ref.get() == argumentType;
+    }
+
+    /**
+     * Selects and caches, a concurrent miss on the same key may cache a duplicate entry
+     */
+    private Entry miss(Entry[] entries, Class<?>[] argumentTypes) {
+        Entry entry = new Entry(argumentTypes, select(argumentTypes));
+        Entry[] updated = new Entry[Math.min(entries.length + 1, CACHE_SIZE)];
+        updated[0] = entry;
+        System.arraycopy(entries, 0, updated, 1, updated.length - 1);
+        cache = updated;
+        return entry;
+    }
+
+    private Method select(Class<?>[] argumentTypes) {
+        if (argumentTypes.length >= candidates.length) {
+            return null;
+        }
+        Method method = select(argumentTypes, false);
+        return method != null ? method : select(argumentTypes, true);
+    }
+
+    /**
+     * @param loose whether arguments may be boxed or unboxed to apply
+     */
+    private Method select(Class<?>[] argumentTypes, boolean loose) {
+        Method[] methods = candidates[argumentTypes.length];
+        Class<?>[][] types = parameterTypes[argumentTypes.length];
+        int best = -1;
+        for (int i = 0; i < methods.length; i++) {
+            if (applicable(types[i], argumentTypes, loose) &&
+                    (best < 0 || moreSpecific(types[i], types[best]))) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        // the last candidate found more specific has to be more specific than all others
+        for (int i = 0; i < methods.length; i++) {
+            if (i != best && applicable(types[i], argumentTypes, loose) && !moreSpecific(types[best], types[i])) {
+                throw new IllegalArgumentException("ambiguous " + name + " of " + type + " for " +
+                        Arrays.toString(argumentTypes) + ": " + methods[best] + ", " + methods[i]);
+            }
+        }
+        return methods[best];
+    }
+
+    private static boolean applicable(Class<?>[] parameterTypes, Class<?>[] argumentTypes, boolean loose) {
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Class<?> parameterType = parameterTypes[i];
+            Class<?> argumentType = argumentTypes[i];
+            if (parameterType.isPrimitive()) {
+                if (argumentType != parameterType && (!loose || argumentType != wrap(parameterType))) {
+                    return false;
+                }
+            } else if (argumentType != null &&
+                    !ReflectionMetaData.isSubtypeOf(loose ? wrap(argumentType) : argumentType, parameterType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Primitive parameters compare as their wrappers
+     */
+    private static boolean moreSpecific(Class<?>[] a, Class<?>[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (!ReflectionMetaData.isSubtypeOf(wrap(a[i]), wrap(b[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,130 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Compiled getter and setter of a field, see {@link ReflectionUtils#accessor(Field)}.
+ * <p>Each field gets its own generated subclass holding exactly typed method handles in static
+ * final fields, so the JIT inlines an access like a direct one and the primitive accessors read
+ * and write without boxing. A primitive accessor must match the field type exactly, otherwise
+ * {@link WrongMethodTypeException} is thrown. {@link #get} and {@link #set} work for every field
+ * type, boxing primitives.
+ * <p>For static fields the target argument is ignored
+ */
+public abstract class FieldAccessor {
+    private final Field field;
+
+    /**
+     * Only generated accessors extend this class
+     */
+    protected FieldAccessor(Field field) {
+        if (!(getClass().getClassLoader() instanceof AccessorGenerator.Loader)) {
+            throw new IllegalStateException("not a generated accessor: " + getClass());
+        }
+        this.field = field;
+    }
+
+    /**
+     * Handles of a generated accessor class, taken once by its static initializer
+     */
+    protected static MethodHandle[] handles(Class<?> accessorClass) {
+        ClassLoader loader = accessorClass.getClassLoader();
+        if (!(loader instanceof AccessorGenerator.Loader)) {
+            throw new IllegalStateException("not a generated accessor: " + accessorClass);
+        }
+        return ((AccessorGenerator.Loader) loader).handles;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public abstract Object get(Object target) throws Throwable;
+
+    public void set(Object target, Object value) throws Throwable {
+        throw new UnsupportedOperationException("final field: " + field);
+    }
+
+    public boolean getBoolean(Object target) throws Throwable {
+        throw mismatch(boolean.class);
+    }
+
+    public void setBoolean(Object target, boolean value) throws Throwable {
+        throw readOnlyOrMismatch(boolean.class);
+    }
+
+    public byte getByte(Object target) throws Throwable {
+        throw mismatch(byte.class);
+    }
+
+    public void setByte(Object target, byte value) throws Throwable {
+        throw readOnlyOrMismatch(byte.class);
+    }
+
+    public char getChar(Object target) throws Throwable {
+        throw mismatch(char.class);
+    }
+
+    public void setChar(Object target, char value) throws Throwable {
+        throw readOnlyOrMismatch(char.class);
+    }
+
+    public short getShort(Object target) throws Throwable {
+        throw mismatch(short.class);
+    }
+
+    public void setShort(Object target, short value) throws Throwable {
+        throw readOnlyOrMismatch(short.class);
+    }
+
+    public int getInt(Object target) throws Throwable {
+        throw mismatch(int.class);
+    }
+
+    public void setInt(Object target, int value) throws Throwable {
+        throw readOnlyOrMismatch(int.class);
+    }
+
+    public long getLong(Object target) throws Throwable {
+        throw mismatch(long.class);
+    }
+
+    public void setLong(Object target, long value) throws Throwable {
+        throw readOnlyOrMismatch(long.class);
+    }
+
+    public float getFloat(Object target) throws Throwable {
+        throw mismatch(float.class);
+    }
+
+    public void setFloat(Object target, float value) throws Throwable {
+        throw readOnlyOrMismatch(float.class);
+    }
+
+    public double getDouble(Object target) throws Throwable {
+        throw mismatch(double.class);
+    }
+
+    public void setDouble(Object target, double value) throws Throwable {
+        throw readOnlyOrMismatch(double.class);
+    }
+
+    private WrongMethodTypeException mismatch(Class<?> type) {
+        return new WrongMethodTypeException(type + " accessor of " + field);
+    }
+
+    private RuntimeException readOnlyOrMismatch(Class<?> type) {
+        if (Modifier.isFinal(field.getModifiers())) {
+            return new UnsupportedOperationException("final field: " + field);
+        }
+        return mismatch(type);
+    }
+
+    @Override
+    public String toString() {
+        return "FieldAccessor[" + field + "]";
+    }
+}
@@ -0,0 +1,22 @@
+package indi.sophronia.util.reflection;
+
+/**
+ * Metadata of a {@link PrecomputedMetaData} type generated at compile time, in the same
+ * order and with the same mappings as {@link ReflectionMetaData} builds reflectively
+ */
+public interface GeneratedMetaData {
+    Class<?>[] superClasses();
+
+    Class<?>[] interfaces();
+
+    /**
+     * @return The type itself followed by all its generic super classes and interfaces,
+     *         parallel to {@link #mappings()}
+     */
+    Class<?>[] mappedTypes();
+
+    /**
+     * @return Mapping of type parameters of each mapped type in the annotated type
+     */
+    GenericTypeMapping[][] mappings();
+}
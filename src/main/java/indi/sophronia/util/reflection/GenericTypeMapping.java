@@ -1,12 +1,30 @@
 package indi.sophronia.util.reflection;
 
 import java.lang.reflect.Type;
+import java.util.Objects;
 
 /**
  * Provides mapping of type parameter between
- * drived class with its generic super class or interface
+ * drived class with its generic super class or interface.
+ * <p>Instances are immutable, metadata shares them between classes through {@link #of(int)} and
+ * {@link #of(Type, int)}
  */
 public class GenericTypeMapping {
+    /**
+     * Answer for a base that is not a generic super class or interface
+     */
+    public static final GenericTypeMapping NONE = new GenericTypeMapping(-1);
+
+    private static final GenericTypeMapping[] INDEXES = new GenericTypeMapping[32];
+
+    private static final WeakInterner<GenericTypeMapping> STATIC_MAPPINGS = new WeakInterner<>();
+
+    static {
+        for (int i = 0; i < INDEXES.length; i++) {
+            INDEXES[i] = new GenericTypeMapping(i);
+        }
+    }
+
     /**
      * If a type parameter of <strong>base class</strong> is not static defined,
      * index value of the type parameter means its index in <strong>drived class</strong>
@@ -33,6 +51,24 @@ public class GenericTypeMapping {
         this.drivedIndex = drivedIndex;
     }
 
+    /**
+     * @return Shared mapping to a type parameter of the drived class
+     */
+    public static GenericTypeMapping of(int drivedIndex) {
+        if (drivedIndex < 0) {
+            return NONE;
+        }
+        return drivedIndex < INDEXES.length ? INDEXES[drivedIndex] : new GenericTypeMapping(drivedIndex);
+    }
+
+    /**
+     * @return Canonical mapping to a static type, shared by all classes with an equal mapping.
+     *         Its {@link #instanceType()} is canonical, see {@link Types#canonical(Type)}
+     */
+    public static GenericTypeMapping of(Type staticType, int drivedIndex) {
+        return STATIC_MAPPINGS.intern(new GenericTypeMapping(Types.canonical(staticType), drivedIndex));
+    }
+
     public boolean generic() {
         return staticType != null || drivedIndex >= 0;
     }
@@ -60,6 +96,23 @@ public class GenericTypeMapping {
         return drivedIndex;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GenericTypeMapping)) {
+            return false;
+        }
+        GenericTypeMapping that = (GenericTypeMapping) o;
+        return drivedIndex == that.drivedIndex && Objects.equals(staticType, that.staticType);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * drivedIndex + Objects.hashCode(staticType);
+    }
+
     @Override
     public String toString() {
         return staticType != null ? staticType.toString() : String.valueOf(drivedIndex);
@@ -0,0 +1,146 @@
+package indi.sophronia.util.reflection;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Declared members of a class and all its super classes and interfaces, in the order
+ * {@link ReflectionUtils#findRequiredMethod} searches them. Nothing is registered or read before
+ * the first element is requested, declared members of a class are read when the walk reaches it.
+ * Splits by ranges of classes, and within the members of the last class
+ */
+final class HierarchySpliterator<T> implements Spliterator<T> {
+    private final Class<?> root;
+    private final Function<ReflectionMetaData, T[]> declaredMembers;
+
+    /**
+     * Searched classes, null until the walk starts
+     */
+    private Class<?>[] classes;
+
+    /**
+     * Next class to read
+     */
+    private int classIndex;
+    private int classEnd;
+
+    /**
+     * Members being walked, null between classes
+     */
+    private T[] members;
+    private int memberIndex;
+    private int memberEnd;
+
+    HierarchySpliterator(Class<?> root, Function<ReflectionMetaData, T[]> declaredMembers) {
+        this.root = root;
+        this.declaredMembers = declaredMembers;
+    }
+
+    private HierarchySpliterator(HierarchySpliterator<T> parent, Class<?>[] classes, int classIndex, int classEnd,
+                                 T[] members, int memberIndex, int memberEnd) {
+        this.root = parent.root;
+        this.declaredMembers = parent.declaredMembers;
+        this.classes = classes;
+        this.classIndex = classIndex;
+        this.classEnd = classEnd;
+        this.members = members;
+        this.memberIndex = memberIndex;
+        this.memberEnd = memberEnd;
+    }
+
+    private void start() {
+        if (classes == null) {
+            ReflectionMetaData data = ReflectionMetaData.register(root);
+            Class<?>[] superClasses = data.getSuperClasses();
+            Class<?>[] interfaces = data.getInterfaces();
+            classes = new Class<?>[1 + superClasses.length + interfaces.length];
+            classes[0] = root;
+            System.arraycopy(superClasses, 0, classes, 1, superClasses.length);
+            System.arraycopy(interfaces, 0, classes, 1 + superClasses.length, interfaces.length);
+            classEnd = classes.length;
+        }
+    }
+
+    /**
+     * @return false if no class is left
+     */
+    private boolean nextClass() {
+        if (classIndex >= classEnd) {
+            return false;
+        }
+        members = declaredMembers.apply(ReflectionMetaData.register(classes[classIndex++]));
+        memberIndex = 0;
+        memberEnd = members.length;
+        return true;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        start();
+        while (members == null || memberIndex >= memberEnd) {
+            if (!nextClass()) {
+                members = null;
+                return false;
+            }
+        }
+        action.accept(members[memberIndex++]);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        start();
+        do {
+            if (members != null) {
+                T[] current = members;
+                int end = memberEnd;
+                for (int i = memberIndex; i < end; i++) {
+                    action.accept(current[i]);
+                }
+                memberIndex = end;
+            }
+        } while (nextClass());
+        members = null;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        start();
+        int remainingClasses = classEnd - classIndex;
+        boolean pending = members != null && memberIndex < memberEnd;
+        if (remainingClasses >= 2 || remainingClasses == 1 && pending) {
+            int mid = classIndex + remainingClasses / 2;
+            // the prefix takes the members being walked and the first half of the classes
+            HierarchySpliterator<T> prefix =
+                    new HierarchySpliterator<>(this, classes, classIndex, mid, members, memberIndex, memberEnd);
+            classIndex = mid;
+            members = null;
+            return prefix;
+        }
+        if (remainingClasses == 1) {
+            nextClass();
+        }
+        if (members != null && memberEnd - memberIndex >= 2) {
+            int mid = memberIndex + (memberEnd - memberIndex) / 2;
+            HierarchySpliterator<T> prefix =
+                    new HierarchySpliterator<>(this, classes, classEnd, classEnd, members, memberIndex, mid);
+            memberIndex = mid;
+            return prefix;
+        }
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        start();
+        int pending = members != null ? memberEnd - memberIndex : 0;
+        // assumes an average class declares a few members, only used to balance splits
+        return pending + (long) (classEnd - classIndex) * 8;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,361 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Builds compiled invokers and accessors from method handles and {@link LambdaMetafactory}
+ */
+final class Invokers {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private Invokers() {
+    }
+
+    /**
+     * Erased shapes the metafactory implements for {@link MethodInvoker}, by number of handle
+     * parameters (receiver included). It casts, unboxes and boxes between these and the method
+     */
+    @FunctionalInterface
+    interface Fn0 {
+        Object apply();
+    }
+
+    @FunctionalInterface
+    interface Fn1 {
+        Object apply(Object a0);
+    }
+
+    @FunctionalInterface
+    interface Fn2 {
+        Object apply(Object a0, Object a1);
+    }
+
+    @FunctionalInterface
+    interface Fn3 {
+        Object apply(Object a0, Object a1, Object a2);
+    }
+
+    @FunctionalInterface
+    interface Proc0 {
+        void accept();
+    }
+
+    @FunctionalInterface
+    interface Proc1 {
+        void accept(Object a0);
+    }
+
+    @FunctionalInterface
+    interface Proc2 {
+        void accept(Object a0, Object a1);
+    }
+
+    @FunctionalInterface
+    interface Proc3 {
+        void accept(Object a0, Object a1, Object a2);
+    }
+
+    private static final Class<?>[] FUNCTIONS = {Fn0.class, Fn1.class, Fn2.class, Fn3.class};
+    private static final Class<?>[] PROCEDURES = {Proc0.class, Proc1.class, Proc2.class, Proc3.class};
+
+    private static final class SpreadInvoker implements MethodInvoker {
+        /**
+         * (Object, Object[])Object
+         */
+        private final MethodHandle handle;
+
+        SpreadInvoker(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object target, Object... args) throws Throwable {
+            return handle.invokeExact(target, args);
+        }
+    }
+
+    private static final MethodType COPY_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * (Object, Object)void doing nothing, the end of every copy chain
+     */
+    private static final MethodHandle NO_COPY;
+
+    static {
+        try {
+            NO_COPY = LOOKUP.findStatic(Invokers.class, "noCopy", COPY_TYPE);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static void noCopy(Object source, Object target) {
+    }
+
+    private static final class CompiledCopier implements BeanCopier<Object, Object> {
+        /**
+         * (Object, Object)void
+         */
+        private final MethodHandle handle;
+
+        CompiledCopier(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public void copy(Object source, Object target) throws Throwable {
+            handle.invokeExact(source, target);
+        }
+    }
+
+    /**
+     * Chains {@code setters[i](target, getters[i](source))} in order into one method handle,
+     * no boxing happens between a getter and its setter
+     */
+    static BeanCopier<Object, Object> copier(Method[] getters, Method[] setters) {
+        MethodHandle copy = NO_COPY;
+        for (int i = getters.length - 1; i >= 0; i--) {
+            MethodHandle getter = unreflect(getters[i]);
+            Class<?> valueType = getter.type().returnType();
+            getter = getter.asType(MethodType.methodType(valueType, Object.class));
+            MethodHandle setter = unreflect(setters[i])
+                    .asType(MethodType.methodType(void.class, Object.class, valueType));
+            // (target, source) -> (source, target)
+            MethodHandle step = MethodHandles.permuteArguments(
+                    MethodHandles.filterArguments(setter, 1, getter), COPY_TYPE, 1, 0);
+            copy = MethodHandles.foldArguments(copy, step);
+        }
+        return new CompiledCopier(copy);
+    }
+
+    /**
+     * Methods with up to three handle parameters get a class spun by the metafactory,
+     * other methods and those not linkable from this library use a spreading method handle
+     */
+    static MethodInvoker invoker(Method method) {
+        MethodHandle handle = unreflect(method);
+        int arity = handle.type().parameterCount();
+        if (arity < FUNCTIONS.length && linkable(method)) {
+            boolean isVoid = method.getReturnType() == void.class;
+            Class<?> shape = isVoid ? PROCEDURES[arity] : FUNCTIONS[arity];
+            Object function = spin(handle, shape, MethodType.genericMethodType(arity)
+                    .changeReturnType(isVoid ? void.class : Object.class));
+            if (function != null) {
+                return adapt(function, Modifier.isStatic(method.getModifiers()), method.getParameterCount());
+            }
+        }
+
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        handle = handle.asSpreader(Object[].class, method.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+        return new SpreadInvoker(handle);
+    }
+
+    private static MethodInvoker adapt(Object function, boolean isStatic, int parameterCount) {
+        int arity = isStatic ? parameterCount : parameterCount + 1;
+        MethodInvoker invoker;
+        switch (arity) {
+            case 0:
+                invoker = function instanceof Fn0 ?
+                        (target, args) -> ((Fn0) function).apply() :
+                        (target, args) -> {
+                            ((Proc0) function).accept();
+                            return null;
+                        };
+                break;
+            case 1:
+                invoker = function instanceof Fn1 ?
+                        (isStatic ?
+                                (target, args) -> ((Fn1) function).apply(args[0]) :
+                                (target, args) -> ((Fn1) function).apply(target)) :
+                        (isStatic ?
+                                (target, args) -> {
+                                    ((Proc1) function).accept(args[0]);
+                                    return null;
+                                } :
+                                (target, args) -> {
+                                    ((Proc1) function).accept(target);
+                                    return null;
+                                });
+                break;
+            case 2:
+                invoker = function instanceof Fn2 ?
+                        (isStatic ?
+                                (target, args) -> ((Fn2) function).apply(args[0], args[1]) :
+                                (target, args) -> ((Fn2) function).apply(target, args[0])) :
+                        (isStatic ?
+                                (target, args) -> {
+                                    ((Proc2) function).accept(args[0], args[1]);
+                                    return null;
+                                } :
+                                (target, args) -> {
+                                    ((Proc2) function).accept(target, args[0]);
+                                    return null;
+                                });
+                break;
+            default:
+                invoker = function instanceof Fn3 ?
+                        (isStatic ?
+                                (target, args) -> ((Fn3) function).apply(args[0], args[1], args[2]) :
+                                (target, args) -> ((Fn3) function).apply(target, args[0], args[1])) :
+                        (isStatic ?
+                                (target, args) -> {
+                                    ((Proc3) function).accept(args[0], args[1], args[2]);
+                                    return null;
+                                } :
+                                (target, args) -> {
+                                    ((Proc3) function).accept(target, args[0], args[1]);
+                                    return null;
+                                });
+                break;
+        }
+        return (target, args) -> {
+            if (args.length != parameterCount) {
+                throw new IllegalArgumentException(
+                        "wrong number of arguments: " + args.length + " expected: " + parameterCount);
+            }
+            return invoker.invoke(target, args);
+        };
+    }
+
+    /**
+     * @return instance of the functional interface backed by the direct handle, null if the
+     *         metafactory cannot link it from this library
+     */
+    private static Object spin(MethodHandle handle, Class<?> functionalInterface, MethodType samType) {
+        try {
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, singleAbstractMethod(functionalInterface).getName(),
+                    MethodType.methodType(functionalInterface), samType, handle,
+                    instantiatedType(samType, handle.type()));
+            return site.getTarget().invoke();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    static FieldAccessor accessor(Field field) {
+        try {
+            try {
+                return AccessorGenerator.generate(field, field, LOOKUP);
+            } catch (IllegalAccessException e) {
+                // the accessor still reports the shared field, never the accessible copy
+                Field copy = field.getDeclaringClass().getDeclaredField(field.getName());
+                copy.setAccessible(true);
+                return AccessorGenerator.generate(field, copy, LOOKUP);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("inaccessible field: " + field, e);
+        }
+    }
+
+    /**
+     * Implements the functional interface with a class spun by {@link LambdaMetafactory}, which the
+     * JIT treats like a hand-written lambda. Falls back to a {@link MethodHandleProxies} proxy when
+     * the method is not reachable from this library, e.g. non-public or defined by a child loader
+     */
+    static <F> F typedInvoker(Method method, Class<F> functionalInterface) {
+        Method sam = singleAbstractMethod(functionalInterface);
+        MethodHandle handle = unreflect(method);
+        MethodType samType = MethodType.methodType(sam.getReturnType(), sam.getParameterTypes());
+        MethodType implType = handle.type();
+        if (implType.parameterCount() != samType.parameterCount()) {
+            throw new IllegalArgumentException(method + " does not match " + sam);
+        }
+
+        Object function = linkable(method) ? spin(handle, functionalInterface, samType) : null;
+        if (function != null) {
+            return functionalInterface.cast(function);
+        }
+        // not linkable from here, the proxy still works
+        return MethodHandleProxies.asInterfaceInstance(functionalInterface, handle);
+    }
+
+    /**
+     * Narrows reference types of the interface method to those of the implementation, to wrappers
+     * where the implementation is primitive. Primitive and void positions of the interface method
+     * are kept, the metafactory adapts them
+     */
+    private static MethodType instantiatedType(MethodType samType, MethodType implType) {
+        MethodType instantiated = samType;
+        for (int i = 0; i < samType.parameterCount(); i++) {
+            if (!samType.parameterType(i).isPrimitive()) {
+                instantiated = instantiated.changeParameterType(i, wrap(implType.parameterType(i)));
+            }
+        }
+        Class<?> samReturn = samType.returnType();
+        if (!samReturn.isPrimitive() && implType.returnType() != void.class) {
+            instantiated = instantiated.changeReturnType(wrap(implType.returnType()));
+        }
+        return instantiated;
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    private static Method singleAbstractMethod(Class<?> functionalInterface) {
+        if (!functionalInterface.isInterface()) {
+            throw new IllegalArgumentException("not an interface: " + functionalInterface);
+        }
+        Method sam = null;
+        for (Method method : functionalInterface.getMethods()) {
+            if (Modifier.isAbstract(method.getModifiers()) && !isObjectMethod(method)) {
+                if (sam != null) {
+                    throw new IllegalArgumentException("not a functional interface: " + functionalInterface);
+                }
+                sam = method;
+            }
+        }
+        if (sam == null) {
+            throw new IllegalArgumentException("not a functional interface: " + functionalInterface);
+        }
+        return sam;
+    }
+
+    private static boolean isObjectMethod(Method method) {
+        try {
+            Object.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            try {
+                return LOOKUP.unreflect(method);
+            } catch (IllegalAccessException e) {
+                // never change accessibility of the shared instance from the member index
+                Method copy = method.getDeclaringClass().getDeclaredMethod(
+                        method.getName(), method.getParameterTypes());
+                copy.setAccessible(true);
+                return LOOKUP.unreflect(copy);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("inaccessible method: " + method, e);
+        }
+    }
+
+    /**
+     * Classes spun by the metafactory resolve the implementation symbolically from this library,
+     * so the declaring class has to be public and visible to its loader
+     */
+    private static boolean linkable(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (!Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(declaringClass.getModifiers())) {
+            return false;
+        }
+        try {
+            ClassLoader loader = Invokers.class.getClassLoader();
+            return Class.forName(declaringClass.getName(), false, loader) == declaringClass;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
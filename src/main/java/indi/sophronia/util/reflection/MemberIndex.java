@@ -0,0 +1,134 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * Flattened methods and fields of a class and all its super classes and interfaces,
+ * in the order {@link ReflectionUtils#findRequiredMethod} searches them:
+ * declared members first, then super classes, then interfaces
+ */
+final class MemberIndex {
+    static final Method[] NO_METHODS = new Method[0];
+    static final Field[] NO_FIELDS = new Field[0];
+
+    /**
+     * Methods of one name, bucketed by parameter count
+     */
+    private static final class MethodGroup {
+        final Method[] all;
+        final Method[][] byArity;
+        final Class<?>[][][] parameterTypesByArity;
+
+        MethodGroup(List<Method> methods) {
+            this.all = methods.toArray(NO_METHODS);
+            int maxArity = 0;
+            for (Method method : all) {
+                maxArity = Math.max(maxArity, method.getParameterCount());
+            }
+            List<List<Method>> buckets = new ArrayList<>();
+            for (int i = 0; i <= maxArity; i++) {
+                buckets.add(new ArrayList<>());
+            }
+            for (Method method : all) {
+                buckets.get(method.getParameterCount()).add(method);
+            }
+            this.byArity = new Method[maxArity + 1][];
+            this.parameterTypesByArity = new Class<?>[maxArity + 1][][];
+            for (int i = 0; i <= maxArity; i++) {
+                byArity[i] = buckets.get(i).toArray(NO_METHODS);
+                parameterTypesByArity[i] = new Class<?>[byArity[i].length][];
+                for (int j = 0; j < byArity[i].length; j++) {
+                    parameterTypesByArity[i][j] = byArity[i][j].getParameterTypes();
+                }
+            }
+        }
+
+        Method[] withArity(int arity) {
+            return arity < byArity.length ? byArity[arity] : NO_METHODS;
+        }
+
+        Method find(Class<?>[] parameterTypes) {
+            int arity = parameterTypes.length;
+            if (arity >= byArity.length) {
+                return null;
+            }
+            Class<?>[][] candidates = parameterTypesByArity[arity];
+            for (int i = 0; i < candidates.length; i++) {
+                if (Arrays.equals(candidates[i], parameterTypes)) {
+                    return byArity[arity][i];
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Method[] methods;
+    private final Field[] fields;
+    private final Map<String, MethodGroup> methodsByName;
+    private final Map<String, Field[]> fieldsByName;
+
+    MemberIndex(ReflectionMetaData data) {
+        List<Method> methods = new ArrayList<>(Arrays.asList(data.declaredMethods()));
+        List<Field> fields = new ArrayList<>(Arrays.asList(data.declaredFields()));
+        for (Class<?> superClass : data.getSuperClasses()) {
+            ReflectionMetaData superData = ReflectionMetaData.register(superClass);
+            methods.addAll(Arrays.asList(superData.declaredMethods()));
+            fields.addAll(Arrays.asList(superData.declaredFields()));
+        }
+        for (Class<?> anInterface : data.getInterfaces()) {
+            ReflectionMetaData interfaceData = ReflectionMetaData.register(anInterface);
+            methods.addAll(Arrays.asList(interfaceData.declaredMethods()));
+            fields.addAll(Arrays.asList(interfaceData.declaredFields()));
+        }
+        this.methods = methods.toArray(NO_METHODS);
+        this.fields = fields.toArray(NO_FIELDS);
+
+        Map<String, List<Method>> methodsByName = new HashMap<>();
+        for (Method method : this.methods) {
+            methodsByName.computeIfAbsent(method.getName(), k -> new ArrayList<>()).add(method);
+        }
+        this.methodsByName = new HashMap<>();
+        for (Map.Entry<String, List<Method>> entry : methodsByName.entrySet()) {
+            this.methodsByName.put(entry.getKey(), new MethodGroup(entry.getValue()));
+        }
+
+        Map<String, List<Field>> fieldsByName = new HashMap<>();
+        for (Field field : this.fields) {
+            fieldsByName.computeIfAbsent(field.getName(), k -> new ArrayList<>()).add(field);
+        }
+        this.fieldsByName = new HashMap<>();
+        for (Map.Entry<String, List<Field>> entry : fieldsByName.entrySet()) {
+            this.fieldsByName.put(entry.getKey(), entry.getValue().toArray(NO_FIELDS));
+        }
+    }
+
+    Method[] methods() {
+        return methods;
+    }
+
+    Field[] fields() {
+        return fields;
+    }
+
+    Method[] methodsNamed(String name) {
+        MethodGroup group = methodsByName.get(name);
+        return group != null ? group.all : NO_METHODS;
+    }
+
+    Method[] methodsNamed(String name, int arity) {
+        MethodGroup group = methodsByName.get(name);
+        return group != null ? group.withArity(arity) : NO_METHODS;
+    }
+
+    Method findMethod(String name, Class<?>[] parameterTypes) {
+        MethodGroup group = methodsByName.get(name);
+        return group != null ? group.find(parameterTypes) : null;
+    }
+
+    Field[] fieldsNamed(String name) {
+        Field[] named = fieldsByName.get(name);
+        return named != null ? named : NO_FIELDS;
+    }
+}
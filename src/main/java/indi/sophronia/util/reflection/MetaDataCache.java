@@ -0,0 +1,560 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache backend of {@link ReflectionMetaData}. Entries live in a {@link ClassValue}, so they are
+ * stored with their class and never keep a class loader reachable. A weak index of registered
+ * classes supports explicit eviction by class loader and the optional size / idle-time policy.
+ * Builds of new entries hold the read side of a lock that reloads take exclusively, cached lookups take none
+ */
+final class MetaDataCache {
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    static final class Slot {
+        private static final AtomicReferenceFieldUpdater<Slot, ReflectionMetaData> DATA =
+                AtomicReferenceFieldUpdater.newUpdater(Slot.class, ReflectionMetaData.class, "data");
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Slot, FutureTask> BUILDING =
+                AtomicReferenceFieldUpdater.newUpdater(Slot.class, FutureTask.class, "building");
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Slot, Set> SUBTYPES =
+                AtomicReferenceFieldUpdater.newUpdater(Slot.class, Set.class, "subtypes");
+        private static final AtomicReferenceFieldUpdater<Slot, BindingIndex> BINDINGS =
+                AtomicReferenceFieldUpdater.newUpdater(Slot.class, BindingIndex.class, "bindings");
+
+        /**
+         * Dense id of the class, stable for the class lifetime as slots are never replaced
+         */
+        final int id = nextId.getAndIncrement();
+
+        volatile ReflectionMetaData data;
+
+        /**
+         * Build in progress, owned by the thread that installed it
+         */
+        volatile FutureTask<ReflectionMetaData> building;
+
+        /**
+         * Approximate time of last access, only maintained while a policy needs it
+         */
+        long lastAccess;
+
+        /**
+         * Entry of this slot in the weak index, null while not cached
+         */
+        IndexReference indexed;
+
+        /**
+         * Cached classes extending or implementing this class, weakly held, created on first link.
+         * Never created for {@link Object}, its subtypes are answered from the index
+         */
+        volatile Set<SubtypeReference> subtypes;
+
+        /**
+         * Subtypes by the bindings of the type parameters of this class, created on first query
+         */
+        volatile BindingIndex bindings;
+    }
+
+    /**
+     * Subtypes of a generic class keyed by the canonical binding of each of its type parameters.
+     * Subtypes linked or replaced after the index was created wait in the pending queue and are
+     * bound on the next query. Bindings are weak keys, the subtype's metadata keeps its own
+     * bindings reachable
+     */
+    private static final class BindingIndex {
+        final Queue<SubtypeReference> pending = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Guarded by the index
+         */
+        final List<Map<Type, Set<SubtypeReference>>> byParameter;
+
+        BindingIndex(int parameters) {
+            byParameter = new ArrayList<>(parameters);
+            for (int i = 0; i < parameters; i++) {
+                byParameter.add(new WeakHashMap<>());
+            }
+        }
+    }
+
+    private static final class IndexReference extends WeakReference<Class<?>> {
+        IndexReference(Class<?> referent, ReferenceQueue<? super Class<?>> queue) {
+            super(referent, queue);
+        }
+    }
+
+    /**
+     * Element of a subtype set, equal to references to the same class, removed from its set once
+     * the class is collected
+     */
+    private static final class SubtypeReference extends WeakReference<Class<?>> {
+        private final int hash;
+
+        /**
+         * Set holding the reference, null for references only used to look up or remove
+         */
+        final Set<SubtypeReference> owner;
+
+        SubtypeReference(Class<?> referent, Set<SubtypeReference> owner, ReferenceQueue<? super Class<?>> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+            this.owner = owner;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            Class<?> referent = get();
+            return referent != null && o instanceof SubtypeReference && ((SubtypeReference) o).get() == referent;
+        }
+    }
+
+    static final Class<?>[] NO_CLASSES = new Class<?>[0];
+
+    private final ClassValue<Slot> slots = new ClassValue<Slot>() {
+        @Override
+        protected Slot computeValue(Class<?> type) {
+            return new Slot();
+        }
+    };
+
+    private final Set<IndexReference> index = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<Class<?>> collected = new ReferenceQueue<>();
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private final ReentrantReadWriteLock reloadLock = new ReentrantReadWriteLock();
+
+    /**
+     * Number of reloads started, written under the write lock
+     */
+    private volatile long generation;
+
+    private volatile int maximumSize;
+    private volatile long expireAfterAccessNanos;
+    private volatile boolean trackAccess;
+    private volatile long lastIdleSweep = System.nanoTime();
+
+    ReflectionMetaData get(Class<?> type, Function<Class<?>, ReflectionMetaData> factory) {
+        Slot slot = slots.get(type);
+        ReflectionMetaData data = slot.data;
+        if (data != null) {
+            if (trackAccess) {
+                slot.lastAccess = System.nanoTime();
+            }
+            ReflectionMetrics.hit();
+            return data;
+        }
+        ReflectionMetrics.miss();
+        MetaDataEvents.miss(type);
+        return build(type, slot, factory);
+    }
+
+    int id(Class<?> type) {
+        return slots.get(type).id;
+    }
+
+    /**
+     * @return Cached metadata, null if the class is not cached, never builds
+     */
+    ReflectionMetaData peek(Class<?> type) {
+        return slots.get(type).data;
+    }
+
+    /**
+     * Each class is built at most once. Threads racing on the same class wait for the owner's
+     * future, while unrelated classes are built in parallel. Supertype futures are only awaited
+     * along the acyclic supertype graph, so the recursive build cannot deadlock
+     */
+    private ReflectionMetaData build(Class<?> type, Slot slot,
+                                     Function<Class<?>, ReflectionMetaData> factory) {
+        FutureTask<ReflectionMetaData> task = new FutureTask<>(() -> factory.apply(type));
+        boolean interrupted = false;
+        try {
+            while (true) {
+                FutureTask<ReflectionMetaData> running = slot.building;
+                if (running == null) {
+                    // taken before the task is visible, so nobody waits on a build stuck behind a reload
+                    reloadLock.readLock().lock();
+                    if (Slot.BUILDING.compareAndSet(slot, null, task)) {
+                        return runOwned(type, slot, task);
+                    }
+                    reloadLock.readLock().unlock();
+                    continue;
+                }
+
+                ReflectionMetaData data = slot.data;
+                if (data != null) {
+                    return data;
+                }
+                try {
+                    return running.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (CancellationException e) {
+                    // the owner found a published entry instead of building, look again
+                    data = slot.data;
+                    if (data != null) {
+                        return data;
+                    }
+                } catch (ExecutionException e) {
+                    throw launderBuildFailure(type, e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private ReflectionMetaData runOwned(Class<?> type, Slot slot, FutureTask<ReflectionMetaData> task) {
+        try {
+            // the previous owner may have published and left between our two reads
+            ReflectionMetaData data = slot.data;
+            if (data != null) {
+                task.cancel(false);
+                return data;
+            }
+            Object event = MetaDataEvents.beginRegistration();
+            long start = System.nanoTime();
+            task.run();
+            data = task.get();
+            ReflectionMetrics.registered(System.nanoTime() - start);
+            MetaDataEvents.endRegistration(event, type);
+            if (!Slot.DATA.compareAndSet(slot, null, data)) {
+                return slot.data;
+            }
+            track(type, slot);
+            return data;
+        } catch (InterruptedException e) {
+            throw launderBuildFailure(type, e);
+        } catch (ExecutionException e) {
+            throw launderBuildFailure(type, e.getCause());
+        } finally {
+            slot.building = null;
+            reloadLock.readLock().unlock();
+        }
+    }
+
+    private static RuntimeException launderBuildFailure(Class<?> type, Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException("failed to build reflection metadata of " + type, cause);
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * Runs the reload exclusively of other reloads and of builds, in a new generation
+     */
+    <T> T reload(Supplier<T> reload) {
+        reloadLock.writeLock().lock();
+        try {
+            generation++;
+            return reload.get();
+        } finally {
+            reloadLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Publishes the entries in order, the caller holds the reload lock
+     */
+    void replace(Class<?>[] types, ReflectionMetaData[] entries) {
+        for (int i = 0; i < types.length; i++) {
+            Slot slot = slots.get(types[i]);
+            ReflectionMetaData previous = slot.data;
+            slot.data = entries[i];
+            if (previous != null) {
+                // linked again even if unchanged, so the binding indexes rebind the new entry
+                relinkSubtype(types[i], previous.getSuperClasses(), entries[i].getSuperClasses());
+                relinkSubtype(types[i], previous.getInterfaces(), entries[i].getInterfaces());
+            }
+            track(types[i], slot);
+        }
+    }
+
+    private void relinkSubtype(Class<?> type, Class<?>[] previous, Class<?>[] current) {
+        if (!Arrays.equals(previous, current)) {
+            List<Class<?>> removed = new ArrayList<>(Arrays.asList(previous));
+            removed.removeAll(Arrays.asList(current));
+            linkSubtype(type, removed.toArray(NO_CLASSES), false);
+        }
+        linkSubtype(type, current, true);
+    }
+
+    private void track(Class<?> type, Slot slot) {
+        slot.lastAccess = System.nanoTime();
+        ReflectionMetaData indexedData = null;
+        synchronized (slot) {
+            if (slot.indexed == null) {
+                slot.indexed = new IndexReference(type, collected);
+                index.add(slot.indexed);
+                indexedData = slot.data;
+            }
+        }
+        if (indexedData != null) {
+            linkSubtype(type, indexedData.getSuperClasses(), true);
+            linkSubtype(type, indexedData.getInterfaces(), true);
+        }
+        expungeCollected();
+        if (maximumSize > 0 && index.size() > maximumSize) {
+            sweep();
+        } else if (expireAfterAccessNanos > 0 &&
+                slot.lastAccess - lastIdleSweep > expireAfterAccessNanos / 2) {
+            sweep();
+        }
+    }
+
+    private void expungeCollected() {
+        for (Reference<? extends Class<?>> ref; (ref = collected.poll()) != null; ) {
+            if (ref instanceof SubtypeReference) {
+                ((SubtypeReference) ref).owner.remove(ref);
+            } else {
+                index.remove(ref);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void linkSubtype(Class<?> type, Class<?>[] supertypes, boolean link) {
+        for (Class<?> supertype : supertypes) {
+            // every class would be linked to it, the index answers instead
+            if (supertype == Object.class) {
+                continue;
+            }
+            Slot slot = slots.get(supertype);
+            Set<SubtypeReference> subtypes = slot.subtypes;
+            if (link) {
+                if (subtypes == null) {
+                    Slot.SUBTYPES.compareAndSet(slot, null, ConcurrentHashMap.newKeySet());
+                    subtypes = slot.subtypes;
+                }
+                subtypes.add(new SubtypeReference(type, subtypes, collected));
+                // read after the add, an index created meanwhile sees the subtype in the set instead
+                BindingIndex bindings = slot.bindings;
+                if (bindings != null) {
+                    bindings.pending.add(new SubtypeReference(type, null, null));
+                }
+            } else if (subtypes != null) {
+                subtypes.remove(new SubtypeReference(type, null, null));
+            }
+        }
+    }
+
+    /**
+     * @return Cached classes extending or implementing the base, in no particular order
+     */
+    Class<?>[] subtypes(Class<?> base) {
+        List<Class<?>> live = new ArrayList<>();
+        if (base == Object.class) {
+            for (IndexReference ref : index) {
+                Class<?> type = ref.get();
+                if (type != null && type != Object.class && !type.isInterface() && !type.isPrimitive() &&
+                        slots.get(type).data != null) {
+                    live.add(type);
+                }
+            }
+            return live.toArray(NO_CLASSES);
+        }
+        Set<SubtypeReference> subtypes = slots.get(base).subtypes;
+        if (subtypes == null) {
+            return NO_CLASSES;
+        }
+        for (SubtypeReference ref : subtypes) {
+            Class<?> subtype = ref.get();
+            // a class evicted while it was being linked stays in the set until it is collected
+            if (subtype != null && slots.get(subtype).data != null) {
+                live.add(subtype);
+            }
+        }
+        return live.toArray(NO_CLASSES);
+    }
+
+    /**
+     * Cached subtypes of the base whose type parameter of the index is bound to the canonical binding.
+     * Bindings of a subtype are computed once per entry by the function, returning the canonical
+     * bindings of all type parameters of the base, and checked again against the current entry
+     * when matched, so entries replaced by a reload are never answered with stale bindings
+     */
+    Class<?>[] subtypes(Class<?> base, int index, Type binding, Function<ReflectionMetaData, Type[]> bindings) {
+        BindingIndex bindingIndex = bindingIndex(base);
+        List<Class<?>> matched = new ArrayList<>();
+        synchronized (bindingIndex) {
+            for (SubtypeReference ref; (ref = bindingIndex.pending.poll()) != null; ) {
+                Class<?> subtype = ref.get();
+                ReflectionMetaData data = subtype != null ? slots.get(subtype).data : null;
+                if (data != null) {
+                    Type[] types = bindings.apply(data);
+                    for (int i = 0; i < types.length; i++) {
+                        bindingIndex.byParameter.get(i).computeIfAbsent(types[i], k -> new HashSet<>()).add(ref);
+                    }
+                }
+            }
+            Set<SubtypeReference> bound = bindingIndex.byParameter.get(index).get(binding);
+            if (bound == null) {
+                return NO_CLASSES;
+            }
+            for (Iterator<SubtypeReference> it = bound.iterator(); it.hasNext(); ) {
+                Class<?> subtype = it.next().get();
+                ReflectionMetaData data = subtype != null ? slots.get(subtype).data : null;
+                if (data != null && bindings.apply(data)[index] == binding) {
+                    matched.add(subtype);
+                } else if (data != null || subtype == null) {
+                    // rebound by a reload or collected, an evicted class keeps its binding until registered again
+                    it.remove();
+                }
+            }
+        }
+        return matched.toArray(NO_CLASSES);
+    }
+
+    private BindingIndex bindingIndex(Class<?> base) {
+        Slot slot = slots.get(base);
+        BindingIndex bindingIndex = slot.bindings;
+        if (bindingIndex != null) {
+            return bindingIndex;
+        }
+        BindingIndex created = new BindingIndex(base.getTypeParameters().length);
+        // seeded under its lock, so no query reads it before, and after it is visible to linking
+        synchronized (created) {
+            if (!Slot.BINDINGS.compareAndSet(slot, null, created)) {
+                return slot.bindings;
+            }
+            for (Class<?> subtype : subtypes(base)) {
+                created.pending.add(new SubtypeReference(subtype, null, null));
+            }
+        }
+        return created;
+    }
+
+    boolean evict(Class<?> type) {
+        Slot slot = slots.get(type);
+        IndexReference indexed;
+        ReflectionMetaData data;
+        synchronized (slot) {
+            indexed = slot.indexed;
+            data = slot.data;
+            slot.indexed = null;
+            slot.data = null;
+        }
+        if (indexed == null) {
+            return false;
+        }
+        index.remove(indexed);
+        ReflectionMetrics.evicted();
+        if (data != null) {
+            linkSubtype(type, data.getSuperClasses(), false);
+            linkSubtype(type, data.getInterfaces(), false);
+        }
+        return true;
+    }
+
+    int evict(ClassLoader loader) {
+        int evicted = 0;
+        for (IndexReference ref : index) {
+            Class<?> type = ref.get();
+            if (type != null && type.getClassLoader() == loader && evict(type)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    int size() {
+        expungeCollected();
+        return index.size();
+    }
+
+    void setMaximumSize(int maximumSize) {
+        this.maximumSize = Math.max(maximumSize, 0);
+        updateAccessTracking();
+    }
+
+    void setExpireAfterAccess(long duration, TimeUnit unit) {
+        this.expireAfterAccessNanos = Math.max(unit.toNanos(duration), 0);
+        updateAccessTracking();
+    }
+
+    private void updateAccessTracking() {
+        trackAccess = maximumSize > 0 || expireAfterAccessNanos > 0;
+    }
+
+    /**
+     * Drops idle entries, then the least recently used ones until the size policy holds again.
+     * Size eviction goes down to 7/8 of the maximum so the sort is amortized over many misses
+     */
+    void sweep() {
+        if (!sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            expungeCollected();
+            long now = System.nanoTime();
+            long idle = expireAfterAccessNanos;
+            List<Class<?>> live = new ArrayList<>(index.size());
+            for (IndexReference ref : index) {
+                Class<?> type = ref.get();
+                if (type == null) {
+                    continue;
+                }
+                if (idle > 0 && now - slots.get(type).lastAccess > idle) {
+                    evict(type);
+                } else {
+                    live.add(type);
+                }
+            }
+            lastIdleSweep = now;
+
+            int max = maximumSize;
+            if (max > 0 && live.size() > max) {
+                long[] stamps = new long[live.size()];
+                for (int i = 0; i < stamps.length; i++) {
+                    stamps[i] = slots.get(live.get(i)).lastAccess;
+                }
+                long[] sorted = stamps.clone();
+                Arrays.sort(sorted);
+                int excess = live.size() - (max - max / 8);
+                long threshold = sorted[excess - 1];
+                for (int i = 0; i < stamps.length && excess > 0; i++) {
+                    if (stamps[i] - threshold <= 0) {
+                        evict(live.get(i));
+                        excess--;
+                    }
+                }
+            }
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package indi.sophronia.util.reflection;
+
+/**
+ * JFR events of the metadata cache. The events are compiled separately from {@code src/jfr/java}
+ * for Java 11 and loaded reflectively, so the library still builds for and runs on Java 8 and on
+ * JVMs without Flight Recorder
+ */
+final class MetaDataEvents {
+    private static final Recorder RECORDER = recorder();
+    private static final boolean AVAILABLE = RECORDER != null;
+
+    private MetaDataEvents() {
+    }
+
+    /**
+     * Implemented by {@code JfrRecorder} with {@code jdk.jfr} events
+     */
+    interface Recorder {
+        void miss(Class<?> type);
+
+        Object beginRegistration();
+
+        void endRegistration(Object started, Class<?> type);
+    }
+
+    private static Recorder recorder() {
+        try {
+            Class<?> recorder = Class.forName("indi.sophronia.util.reflection.JfrRecorder", true,
+                    MetaDataEvents.class.getClassLoader());
+            return (Recorder) recorder.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    static void miss(Class<?> type) {
+        if (AVAILABLE) {
+            RECORDER.miss(type);
+        }
+    }
+
+    /**
+     * @return Started registration event, null without Flight Recorder
+     */
+    static Object beginRegistration() {
+        return AVAILABLE ? RECORDER.beginRegistration() : null;
+    }
+
+    static void endRegistration(Object started, Class<?> type) {
+        if (started != null) {
+            RECORDER.endRegistration(started, type);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package indi.sophronia.util.reflection;
+
+/**
+ * Compiled invocation of a method, see {@link ReflectionUtils#invoker(java.lang.reflect.Method)}
+ */
+@FunctionalInterface
+public interface MethodInvoker {
+    /**
+     * Unlike {@link java.lang.reflect.Method#invoke}, exceptions thrown by the method are
+     * propagated as they are instead of being wrapped
+     * @param target receiver of the method, ignored for static methods
+     * @return result of the method, null for void methods
+     */
+    Object invoke(Object target, Object... args) throws Throwable;
+}
@@ -0,0 +1,91 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * Override relations between declared methods of a class and methods of
+ * all its super classes and interfaces, computed once per class
+ */
+public final class OverrideGraph {
+    private final Class<?> type;
+    private final Method[] declaredMethods;
+
+    /**
+     * Declared method to methods it overrides, in the order super classes and interfaces are searched
+     */
+    private final Map<Method, Method[]> baseMethods;
+
+    /**
+     * Base method to the declared methods overriding it
+     */
+    private final Map<Method, Method[]> overridingMethods;
+
+    OverrideGraph(ReflectionMetaData data, Class<?> type) {
+        this.type = type;
+        this.declaredMethods = data.declaredMethods();
+        this.baseMethods = new HashMap<>(declaredMethods.length * 2);
+        Map<Method, List<Method>> overriding = new LinkedHashMap<>();
+        for (Method declaredMethod : declaredMethods) {
+            List<Method> bases = new ArrayList<>();
+            // candidates with the same name and arity, declared methods of this class come first
+            Method[] candidates =
+                    data.memberIndex().methodsNamed(declaredMethod.getName(), declaredMethod.getParameterCount());
+            for (Method candidate : candidates) {
+                if (candidate.getDeclaringClass() != type &&
+                        ReflectionUtils.overrides(ReflectionMetaData.register(candidate.getDeclaringClass()), candidate,
+                                data, declaredMethod)) {
+                    bases.add(candidate);
+                    overriding.computeIfAbsent(candidate, k -> new ArrayList<>()).add(declaredMethod);
+                }
+            }
+            baseMethods.put(declaredMethod, bases.toArray(MemberIndex.NO_METHODS));
+        }
+        this.overridingMethods = new HashMap<>(overriding.size() * 2);
+        for (Map.Entry<Method, List<Method>> entry : overriding.entrySet()) {
+            overridingMethods.put(entry.getKey(), entry.getValue().toArray(MemberIndex.NO_METHODS));
+        }
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return Copy of the declared methods of the class, the nodes of this graph
+     */
+    public Method[] declaredMethods() {
+        return declaredMethods.clone();
+    }
+
+    /**
+     * @return Copy of all methods overridden by the declared method in super classes and interfaces,
+     *         empty if the method is not declared by this class or overrides nothing
+     */
+    public Method[] baseMethods(Method declaredMethod) {
+        return bases(declaredMethod).clone();
+    }
+
+    /**
+     * @return Copy of the declared methods of this class overriding the base method
+     */
+    public Method[] overridingMethods(Method baseMethod) {
+        return overriders(baseMethod).clone();
+    }
+
+    /**
+     * Shared array behind {@link #baseMethods(Method)}, must not be modified
+     */
+    Method[] bases(Method declaredMethod) {
+        Method[] methods = baseMethods.get(declaredMethod);
+        return methods != null ? methods : MemberIndex.NO_METHODS;
+    }
+
+    /**
+     * Shared array behind {@link #overridingMethods(Method)}, must not be modified
+     */
+    Method[] overriders(Method baseMethod) {
+        Method[] methods = overridingMethods.get(baseMethod);
+        return methods != null ? methods : MemberIndex.NO_METHODS;
+    }
+}
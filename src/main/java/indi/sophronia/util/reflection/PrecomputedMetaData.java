@@ -0,0 +1,17 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.annotation.*;
+
+/**
+ * Opts a type into compile-time metadata generation. With
+ * {@code indi.sophronia.util.reflection.processor.MetaDataProcessor} on the annotation processor
+ * path, a {@link GeneratedMetaData} class named {@code <binary name>$$MetaData} is generated next to
+ * the type, and {@link ReflectionMetaData#register} loads it instead of walking generic supertypes
+ * reflectively. Without the generated class registration falls back to reflection.
+ * <p>Not inherited: subclasses need their own annotation
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface PrecomputedMetaData {
+}
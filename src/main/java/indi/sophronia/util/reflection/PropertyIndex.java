@@ -0,0 +1,105 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.*;
+
+/**
+ * Bean properties of a class: public instance getters {@code getX()} / {@code isX()} and setters
+ * {@code setX(value)} of the whole hierarchy, the most derived declaration winning.
+ * Types are resolved against the class, a setter pairs with the getter if its parameter type is the
+ * getter type, by resolved type first and erasure next
+ */
+final class PropertyIndex {
+    static final BeanProperty[] NO_PROPERTIES = new BeanProperty[0];
+
+    private final BeanProperty[] properties;
+    private final Map<String, BeanProperty> byName;
+
+    PropertyIndex(ReflectionMetaData data) {
+        Map<String, Method> getters = new LinkedHashMap<>();
+        Map<String, List<Method>> setters = new LinkedHashMap<>();
+        Set<String> names = new LinkedHashSet<>();
+        for (Method method : data.memberIndex().methods()) {
+            int modifiers = method.getModifiers();
+            if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers) || method.isBridge() ||
+                    method.isSynthetic() || method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            String name = method.getName();
+            Class<?> returnType = method.getReturnType();
+            if (method.getParameterCount() == 0 && returnType != void.class) {
+                String property = name.startsWith("get") ? propertyName(name, 3) :
+                        name.startsWith("is") && returnType == boolean.class ? propertyName(name, 2) : null;
+                if (property != null) {
+                    getters.putIfAbsent(property, method);
+                    names.add(property);
+                }
+            } else if (method.getParameterCount() == 1 && returnType == void.class && name.startsWith("set")) {
+                String property = propertyName(name, 3);
+                if (property != null) {
+                    setters.computeIfAbsent(property, k -> new ArrayList<>()).add(method);
+                    names.add(property);
+                }
+            }
+        }
+
+        List<BeanProperty> properties = new ArrayList<>(names.size());
+        for (String name : names) {
+            Method getter = getters.get(name);
+            List<Method> candidates = setters.getOrDefault(name, Collections.emptyList());
+            if (getter == null) {
+                Method setter = candidates.get(0);
+                properties.add(new BeanProperty(name, null, setter,
+                        data.resolvedParameterTypes(setter)[0]));
+                continue;
+            }
+            Type propertyType = data.resolvedReturnType(getter);
+            Method setter = null;
+            for (Method candidate : candidates) {
+                if (propertyType.equals(data.resolvedParameterTypes(candidate)[0])) {
+                    setter = candidate;
+                    break;
+                }
+            }
+            if (setter == null) {
+                Class<?> rawType = TypeResolver.erasure(propertyType);
+                for (Method candidate : candidates) {
+                    if (candidate.getParameterTypes()[0] == rawType) {
+                        setter = candidate;
+                        break;
+                    }
+                }
+            }
+            properties.add(new BeanProperty(name, getter, setter, propertyType));
+        }
+        this.properties = properties.toArray(NO_PROPERTIES);
+        this.byName = new HashMap<>(this.properties.length * 2);
+        for (BeanProperty property : this.properties) {
+            byName.put(property.getName(), property);
+        }
+    }
+
+    /**
+     * Decapitalizes like {@code java.beans.Introspector}, null if nothing follows the prefix
+     */
+    private static String propertyName(String methodName, int prefix) {
+        if (methodName.length() == prefix) {
+            return null;
+        }
+        String name = methodName.substring(prefix);
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    BeanProperty[] properties() {
+        return properties;
+    }
+
+    BeanProperty property(String name) {
+        return byName.get(name);
+    }
+}
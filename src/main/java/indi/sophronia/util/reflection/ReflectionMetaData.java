@@ -1,11 +1,14 @@
 package indi.sophronia.util.reflection;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.*;
 import java.util.function.Function;
 
 /**
@@ -14,55 +17,117 @@ import java.util.function.Function;
  * for provided class
  */
 public class ReflectionMetaData {
-    private static final ConcurrentMap<Class<?>, ReflectionMetaData> cache = new ConcurrentHashMap<>();
+    private static final MetaDataCache cache = new MetaDataCache();
 
     private final Class<?> type;
+    private final int id;
+
+    /**
+     * Reload generation the entry was published in
+     */
+    private final long version;
     private final Class<?>[] superClasses;
     private final Class<?>[] interfaces;
 
     /**
-     * The map to save mapping relations of generic type parameters between current {@link #type} and
-     * super classes and interfaces
+     * Ids of the class itself and all its super classes and interfaces, built on first demand.
+     * {@link Object}, a supertype of all classes, is left out and checked apart
      */
-    private final Map<Class<?>, GenericTypeMapping[]> typeParameterMap = new LinkedHashMap<>();
+    private volatile SupertypeSet supertypeSet;
 
-    private final TypeVariable<?>[] typeVariables;
+    /**
+     * Source of the generic stage of types with {@link PrecomputedMetaData}, null when built by reflection
+     */
+    private final GeneratedMetaData generated;
 
-    private ReflectionMetaData(Class<?> clazz) {
-        this.type = clazz;
+    /**
+     * Type parameters and their mappings, the generic stage built on first demand.
+     * The hierarchy stage, super classes and interfaces, is built on registration
+     */
+    private volatile Generics generics;
+
+    private static final class Generics {
+        final TypeVariable<?>[] typeVariables;
+
+        /**
+         * The table to save mapping relations of generic type parameters between current {@link #type} and
+         * super classes and interfaces
+         */
+        final TypeParameterTable typeParameterMap;
+
+        Generics(TypeVariable<?>[] typeVariables, TypeParameterTable typeParameterMap) {
+            this.typeVariables = typeVariables;
+            this.typeParameterMap = typeParameterMap;
+        }
+    }
+
+    private volatile Method[] declaredMethods;
+    private volatile Field[] declaredFields;
+
+    /**
+     * Members of the whole hierarchy, built on first use
+     */
+    private volatile MemberIndex memberIndex;
+
+    private volatile OverrideGraph overrideGraph;
+
+    private volatile AnnotationIndex annotationIndex;
+
+    private volatile PropertyIndex propertyIndex;
+
+    /**
+     * Compiled invokers and generic parameter types of members declared by this class,
+     * resolved types of members as seen from this class, copiers into this class and dispatchers,
+     * created on first use
+     */
+    private volatile MemberCaches memberCaches;
 
-        int genericTypeParameterCount = clazz.getTypeParameters().length;
-        typeVariables = new TypeVariable[genericTypeParameterCount];
-        GenericTypeMapping[] baseMapping = new GenericTypeMapping[genericTypeParameterCount];
-        for (int i = 0; i < genericTypeParameterCount; i++) {
-            baseMapping[i] = new GenericTypeMapping(i);
-            typeVariables[i] = clazz.getTypeParameters()[i];
+    private static final class MemberCaches {
+        final ConcurrentMap<Method, MethodInvoker> invokers = new ConcurrentHashMap<>();
+        final ConcurrentMap<Field, FieldAccessor> accessors = new ConcurrentHashMap<>();
+        final ConcurrentMap<Method, ClassKeyedCache<Object>> typedInvokers = new ConcurrentHashMap<>();
+        final ConcurrentMap<Member, Type> resolvedTypes = new ConcurrentHashMap<>();
+        final ConcurrentMap<Method, Type[]> resolvedParameterTypes = new ConcurrentHashMap<>();
+        final ConcurrentMap<Method, Type[]> genericParameterTypes = new ConcurrentHashMap<>();
+        final ConcurrentMap<Class<?>, Type[]> bindings = new ConcurrentHashMap<>();
+        final ClassKeyedCache<CachedCopier> copiers;
+        final ConcurrentMap<String, Dispatcher> dispatchers = new ConcurrentHashMap<>();
+
+        MemberCaches(ReflectionMetaData data) {
+            copiers = new ClassKeyedCache<>(data.type, data::compileCopier);
+        }
+    }
+
+    /**
+     * Copier with the entry of the source class it was compiled from
+     */
+    private static final class CachedCopier {
+        final ReflectionMetaData source;
+        final BeanCopier<Object, Object> copier;
+
+        CachedCopier(ReflectionMetaData source, BeanCopier<Object, Object> copier) {
+            this.source = source;
+            this.copier = copier;
         }
-        typeParameterMap.put(clazz, baseMapping);
+    }
+
+    private ReflectionMetaData(Class<?> clazz, long version) {
+        this.type = clazz;
+        this.id = cache.id(clazz);
+        this.version = version;
+        this.generated = null;
 
         List<Class<?>> superClasses = new ArrayList<>();
         Set<Class<?>> interfaces = new LinkedHashSet<>();
-        for (Type i : clazz.getGenericInterfaces()) {
-            ParameterizedType genericInterface = i instanceof ParameterizedType ? (ParameterizedType) i : null;
-            Class<?> ii = (Class<?>) (genericInterface != null ? genericInterface.getRawType() : i);
-            ReflectionMetaData data = register(ii);
-            if (genericInterface != null) {
-                handleGenericSuper(data, genericInterface.getActualTypeArguments());
-            }
+        for (Class<?> ii : clazz.getInterfaces()) {
             interfaces.add(ii);
-            interfaces.addAll(Arrays.asList(data.interfaces));
+            interfaces.addAll(Arrays.asList(register(ii).interfaces));
         }
 
-        Type superType = clazz.getGenericSuperclass();
         Class<?> superClass = clazz.getSuperclass();
         if (superClass != null) {
             superClasses.add(superClass);
             ReflectionMetaData superData = register(superClass);
-            if (superType instanceof ParameterizedType) {
-                handleGenericSuper(superData, ((ParameterizedType) superType).getActualTypeArguments());
-            } else if (superClass.getTypeParameters().length > 0) {
-                handleRawGenericSuper(superData);
-            }
             superClasses.addAll(Arrays.asList(superData.superClasses));
             interfaces.addAll(Arrays.asList(superData.interfaces));
         }
@@ -71,39 +136,217 @@ public class ReflectionMetaData {
         this.interfaces = interfaces.toArray(new Class[0]);
     }
 
-    private void handleGenericSuper(ReflectionMetaData superData, Type[] actualTypeArguments) {
-        Type[] currentTypeParameters = type.getTypeParameters();
+    /**
+     * Builds from metadata generated at compile time, see {@link PrecomputedMetaData}
+     */
+    private ReflectionMetaData(Class<?> clazz, GeneratedMetaData generated, long version) {
+        this.type = clazz;
+        this.id = cache.id(clazz);
+        this.version = version;
+        this.generated = generated;
+        this.superClasses = generated.superClasses();
+        this.interfaces = generated.interfaces();
+    }
+
+    /**
+     * The prepared entry published in another generation, sharing its hierarchy stage.
+     * The other stages are built again on demand
+     */
+    private ReflectionMetaData(ReflectionMetaData prepared, long version) {
+        this.type = prepared.type;
+        this.id = prepared.id;
+        this.version = version;
+        this.generated = prepared.generated;
+        this.superClasses = prepared.superClasses;
+        this.interfaces = prepared.interfaces;
+    }
+
+    private static ReflectionMetaData create(Class<?> clazz) {
+        registerSupertypes(clazz);
+        long version = cache.generation();
+        if (clazz.isAnnotationPresent(PrecomputedMetaData.class)) {
+            GeneratedMetaData generated = loadGenerated(clazz);
+            if (generated != null) {
+                return new ReflectionMetaData(clazz, generated, version);
+            }
+        }
+        return new ReflectionMetaData(clazz, version);
+    }
+
+    /**
+     * Registers the supertypes not cached yet, deepest first, so building each of them finds its own
+     * direct supertypes cached. The stack depth of a registration then does not grow with the depth
+     * of the hierarchy, only the explicit stack here does
+     */
+    private static void registerSupertypes(Class<?> clazz) {
+        Deque<Class<?>> pending = new ArrayDeque<>();
+        pushUncached(clazz, pending);
+        Set<Class<?>> expanded = null;
+        while (!pending.isEmpty()) {
+            Class<?> next = pending.peek();
+            if (cache.peek(next) != null) {
+                pending.pop();
+                continue;
+            }
+            if (expanded == null) {
+                expanded = new HashSet<>();
+            }
+            if (expanded.add(next)) {
+                pushUncached(next, pending);
+            } else {
+                pending.pop();
+                register(next);
+            }
+        }
+    }
+
+    private static void pushUncached(Class<?> clazz, Deque<Class<?>> pending) {
+        Class<?> superClass = clazz.getSuperclass();
+        if (superClass != null && cache.peek(superClass) == null) {
+            pending.push(superClass);
+        }
+        for (Class<?> anInterface : clazz.getInterfaces()) {
+            if (cache.peek(anInterface) == null) {
+                pending.push(anInterface);
+            }
+        }
+    }
+
+    /**
+     * @return null if the annotation processor did not run for the class
+     */
+    private static GeneratedMetaData loadGenerated(Class<?> clazz) {
+        Class<?> generatedClass;
+        try {
+            generatedClass = Class.forName(clazz.getName() + "$$MetaData", true, clazz.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        try {
+            return (GeneratedMetaData) generatedClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalStateException("broken generated metadata: " + generatedClass, e);
+        }
+    }
+
+    /**
+     * Builds metadata by reflection, ignoring generated metadata. Not cached
+     */
+    static ReflectionMetaData fromReflection(Class<?> clazz) {
+        return new ReflectionMetaData(clazz, cache.generation());
+    }
+
+    private Generics generics() {
+        Generics stage = generics;
+        if (stage == null) {
+            stage = generated != null ? generatedGenerics() : reflectedGenerics();
+            generics = stage;
+        }
+        return stage;
+    }
+
+    private Generics generatedGenerics() {
+        Class<?>[] mappedTypes = generated.mappedTypes();
+        GenericTypeMapping[][] mappings = generated.mappings();
+        Map<Class<?>, GenericTypeMapping[]> typeParameterMap = new LinkedHashMap<>();
+        for (int i = 0; i < mappedTypes.length; i++) {
+            typeParameterMap.put(mappedTypes[i], mappings[i]);
+        }
+        return new Generics(type.getTypeParameters(), new TypeParameterTable(typeParameterMap));
+    }
+
+    /**
+     * Builds the generic stages of all supertypes farthest first, interfaces before classes, so each
+     * finds the stages of its direct supertypes built and the stack depth does not grow with the hierarchy
+     */
+    private void buildSupertypeGenerics() {
+        for (int i = interfaces.length - 1; i >= 0; i--) {
+            register(interfaces[i]).generics();
+        }
+        for (int i = superClasses.length - 1; i >= 0; i--) {
+            register(superClasses[i]).generics();
+        }
+    }
+
+    /**
+     * Mappings of direct super classes and interfaces are taken from their generic stages,
+     * super class mappings override interface mappings of the same type
+     */
+    private Generics reflectedGenerics() {
+        buildSupertypeGenerics();
+        TypeVariable<?>[] typeVariables = type.getTypeParameters();
+        GenericTypeMapping[] baseMapping = new GenericTypeMapping[typeVariables.length];
+        for (int i = 0; i < typeVariables.length; i++) {
+            baseMapping[i] = GenericTypeMapping.of(i);
+        }
+        Map<Class<?>, GenericTypeMapping[]> typeParameterMap = new LinkedHashMap<>();
+        typeParameterMap.put(type, baseMapping);
+
+        for (Type i : type.getGenericInterfaces()) {
+            if (i instanceof ParameterizedType) {
+                ParameterizedType genericInterface = (ParameterizedType) i;
+                ReflectionMetaData data = register((Class<?>) genericInterface.getRawType());
+                handleGenericSuper(typeParameterMap, typeVariables, data, genericInterface.getActualTypeArguments(),
+                        false);
+            }
+        }
+
+        Type superType = type.getGenericSuperclass();
+        Class<?> superClass = type.getSuperclass();
+        if (superClass != null) {
+            if (superType instanceof ParameterizedType) {
+                handleGenericSuper(typeParameterMap, typeVariables, register(superClass),
+                        ((ParameterizedType) superType).getActualTypeArguments(), true);
+            } else if (superClass.getTypeParameters().length > 0) {
+                handleRawGenericSuper(typeParameterMap, register(superClass));
+            }
+        }
+        return new Generics(typeVariables, new TypeParameterTable(typeParameterMap));
+    }
+
+    /**
+     * @param override whether rows of types already mapped are replaced. A type inherited along several
+     *                 paths has the same arguments on all of them, so only the super class replaces rows
+     */
+    private static void handleGenericSuper(Map<Class<?>, GenericTypeMapping[]> typeParameterMap,
+                                           Type[] currentTypeParameters,
+                                           ReflectionMetaData superData, Type[] actualTypeArguments,
+                                           boolean override) {
         GenericTypeMapping[] superMapping = new GenericTypeMapping[actualTypeArguments.length];
         for (int i = 0; i < actualTypeArguments.length; i++) {
             boolean asSuperParameter = false;
             for (int j = 0; j < currentTypeParameters.length; j++) {
                 if (currentTypeParameters[j].equals(actualTypeArguments[i])) {
                     asSuperParameter = true;
-                    superMapping[i] = new GenericTypeMapping(j);
+                    superMapping[i] = GenericTypeMapping.of(j);
                     break;
                 }
             }
             if (!asSuperParameter) {
-                superMapping[i] = new GenericTypeMapping(actualTypeArguments[i], i);
+                superMapping[i] = GenericTypeMapping.of(actualTypeArguments[i], i);
             }
         }
         typeParameterMap.put(superData.type, superMapping);
 
         // success from super class
-        for (Map.Entry<Class<?>, GenericTypeMapping[]> entry : superData.typeParameterMap.entrySet()) {
-            GenericTypeMapping[] genericTypeMappings = entry.getValue();
+        TypeParameterTable inherited = superData.generics().typeParameterMap;
+        for (int row = 0; row < inherited.size(); row++) {
+            if (!override && typeParameterMap.containsKey(inherited.type(row))) {
+                continue;
+            }
+            GenericTypeMapping[] genericTypeMappings = inherited.row(row);
             GenericTypeMapping[] mappings = new GenericTypeMapping[genericTypeMappings.length];
             for (int i = 0; i < genericTypeMappings.length; i++) {
-                // static type parameters depends on nothing
+                // static type parameters depends on nothing, mappings are immutable and shared
                 if (genericTypeMappings[i].instantiated()) {
-                    mappings[i] = new GenericTypeMapping(genericTypeMappings[i]);
+                    mappings[i] = genericTypeMappings[i];
                     continue;
                 }
                 // otherwise, replace them by mapping of super class
                 int indexInSuperClass = genericTypeMappings[i].index();
-                mappings[i] = new GenericTypeMapping(superMapping[indexInSuperClass]);
+                mappings[i] = superMapping[indexInSuperClass];
             }
-            typeParameterMap.put(entry.getKey(), mappings);
+            typeParameterMap.put(inherited.type(row), mappings);
         }
     }
 
@@ -111,38 +354,338 @@ public class ReflectionMetaData {
      * If base class is raw of generic type, decay all type parameters
      * to their bound
      */
-    private void handleRawGenericSuper(ReflectionMetaData superData) {
-        for (Map.Entry<Class<?>, GenericTypeMapping[]> entry : superData.typeParameterMap.entrySet()) {
-            GenericTypeMapping[] decayedMappings = Arrays.copyOf(entry.getValue(), entry.getValue().length);
+    private static void handleRawGenericSuper(Map<Class<?>, GenericTypeMapping[]> typeParameterMap,
+                                              ReflectionMetaData superData) {
+        TypeParameterTable inherited = superData.generics().typeParameterMap;
+        for (int row = 0; row < inherited.size(); row++) {
+            Class<?> base = inherited.type(row);
+            TypeVariable<?>[] baseVariables = base.getTypeParameters();
+            GenericTypeMapping[] decayedMappings = new GenericTypeMapping[inherited.row(row).length];
             for (int i = 0; i < decayedMappings.length; i++) {
-                decayedMappings[i] =
-                        new GenericTypeMapping(entry.getKey().getTypeParameters()[i].getBounds()[0], i);
+                decayedMappings[i] = GenericTypeMapping.of(baseVariables[i].getBounds()[0], i);
             }
-            this.typeParameterMap.put(entry.getKey(), decayedMappings);
+            typeParameterMap.put(base, decayedMappings);
         }
     }
 
     public static ReflectionMetaData register(Class<?> clazz) {
-        ReflectionMetaData data = cache.get(clazz);
-        if (data != null) {
-            return data;
+        return cache.get(clazz, ReflectionMetaData::create);
+    }
+
+    /**
+     * Registers the classes with all their super classes and interfaces on the common pool,
+     * returns when all of them are cached. Like {@link CompletableFuture}, a common pool without
+     * parallelism is not used, classes are built in the calling thread instead
+     */
+    public static void registerAll(Collection<? extends Class<?>> classes) {
+        registerAll(classes, ForkJoinPool.getCommonPoolParallelism() > 1 ? ForkJoinPool.commonPool() : Runnable::run);
+    }
+
+    /**
+     * Registers the classes with all their super classes and interfaces, each class is built on the
+     * executor once its direct super class and interfaces are cached, so builds never wait on each other.
+     * Returns when all of them are cached
+     */
+    public static void registerAll(Collection<? extends Class<?>> classes, Executor executor) {
+        Map<Class<?>, CompletableFuture<ReflectionMetaData>> scheduled = new HashMap<>();
+        CompletableFuture<?>[] requested = new CompletableFuture<?>[classes.size()];
+        int i = 0;
+        for (Class<?> clazz : classes) {
+            requested[i++] = schedule(clazz, scheduled, executor);
         }
-        synchronized (ReflectionMetaData.class) {
-            data = cache.get(clazz);
-            if (data != null) {
-                return data;
+        try {
+            CompletableFuture.allOf(requested).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
             }
-            data = new ReflectionMetaData(clazz);
-            cache.put(clazz, data);
-            return data;
+            throw e;
         }
     }
 
+    private static CompletableFuture<ReflectionMetaData> schedule(
+            Class<?> clazz, Map<Class<?>, CompletableFuture<ReflectionMetaData>> scheduled, Executor executor) {
+        CompletableFuture<ReflectionMetaData> future = scheduled.get(clazz);
+        if (future != null) {
+            return future;
+        }
+        ReflectionMetaData cached = cache.peek(clazz);
+        if (cached != null) {
+            future = CompletableFuture.completedFuture(cached);
+        } else {
+            Class<?> superClass = clazz.getSuperclass();
+            Class<?>[] directInterfaces = clazz.getInterfaces();
+            CompletableFuture<?>[] parents =
+                    new CompletableFuture<?>[directInterfaces.length + (superClass != null ? 1 : 0)];
+            for (int i = 0; i < directInterfaces.length; i++) {
+                parents[i] = schedule(directInterfaces[i], scheduled, executor);
+            }
+            if (superClass != null) {
+                parents[directInterfaces.length] = schedule(superClass, scheduled, executor);
+            }
+            future = CompletableFuture.allOf(parents).thenApplyAsync(ignored -> register(clazz), executor);
+        }
+        scheduled.put(clazz, future);
+        return future;
+    }
+
+    /**
+     * Replaces the metadata of the class and rebuilds the cached classes extending or implementing it,
+     * so none of them keeps mappings derived from the replaced entry. All replacements are built
+     * before any is published, then published supertypes first, so a new entry only ever derives
+     * from new entries. Replaced entries stay consistent snapshots of the previous version: the
+     * stages reading other entries, the generic stage and the annotation index, are completed
+     * beforehand, the other stages only derive from the entry itself. The supplier and the
+     * completion run before the reload lock is taken; reloads are serialized and classes registered
+     * meanwhile are built after the reload, cached lookups never wait. The supplied entry is published
+     * as a copy carrying the reload's generation
+     */
+    @SuppressWarnings("unchecked")
     public static <T extends ReflectionMetaData> T reload(Class<?> clazz,
                                                           Function<Class<?>, T> supplier) {
-        T metaData = supplier.apply(clazz);
-        cache.put(clazz, metaData);
-        return metaData;
+        long generation = cache.generation();
+        T prepared = supplier.apply(clazz);
+        completeReplaced(clazz);
+        return cache.reload(() -> {
+            // built again if another reload ran meanwhile, the completion is a no-op otherwise
+            T supplied = cache.generation() == generation + 1 ? prepared : supplier.apply(clazz);
+            // T is ReflectionMetaData itself, its constructors are private
+            T metaData = (T) new ReflectionMetaData(supplied, cache.generation());
+            List<ReflectionMetaData> dependents = completeReplaced(clazz);
+            // a subtype has strictly more supertypes than any of its supertypes
+            dependents.sort(Comparator.comparingInt(data -> data.superClasses.length + data.interfaces.length));
+
+            Class<?>[] types = new Class<?>[dependents.size() + 1];
+            ReflectionMetaData[] entries = new ReflectionMetaData[types.length];
+            types[0] = clazz;
+            entries[0] = metaData;
+            for (int i = 1; i < types.length; i++) {
+                types[i] = dependents.get(i - 1).type;
+                entries[i] = create(types[i]);
+            }
+            cache.replace(types, entries);
+            return metaData;
+        });
+    }
+
+    /**
+     * Completes the stages reading other entries of the cached entry of the class and of its cached subtypes
+     * @return The cached subtypes' entries
+     */
+    private static List<ReflectionMetaData> completeReplaced(Class<?> clazz) {
+        ReflectionMetaData replaced = cache.peek(clazz);
+        if (replaced != null) {
+            replaced.completeStages();
+        }
+        List<ReflectionMetaData> dependents = new ArrayList<>();
+        for (Class<?> subtype : cache.subtypes(clazz)) {
+            ReflectionMetaData data = cache.peek(subtype);
+            if (data != null) {
+                data.completeStages();
+                dependents.add(data);
+            }
+        }
+        return dependents;
+    }
+
+    private void completeStages() {
+        generics();
+        annotationIndex();
+    }
+
+    /**
+     * Registered classes extending or implementing the base, in no particular order.
+     * Answered from a reverse index maintained on registration and eviction
+     */
+    public static Class<?>[] registeredSubtypes(Class<?> base) {
+        return cache.subtypes(base);
+    }
+
+    /**
+     * Registered subtypes of the base whose type parameter of the index resolves to the binding,
+     * like {@link #resolve(Type, Class)} does. Answered from an index of the base's subtypes by
+     * binding, each subtype is resolved once per entry
+     */
+    public static Class<?>[] registeredSubtypes(Class<?> base, int index, Type binding) {
+        if (index < 0 || index >= base.getTypeParameters().length) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return cache.subtypes(base, index, Types.canonical(binding), data -> data.bindingsOf(base));
+    }
+
+    /**
+     * Canonical type parameters of the supertype resolved as seen from this class, shared and not to
+     * be modified. Kept with the entry, which keeps them reachable as keys of the binding index
+     */
+    private Type[] bindingsOf(Class<?> supertype) {
+        ConcurrentMap<Class<?>, Type[]> bindings = memberCaches().bindings;
+        Type[] types = bindings.get(supertype);
+        if (types == null) {
+            types = bindings.computeIfAbsent(supertype, k -> {
+                TypeVariable<?>[] variables = supertype.getTypeParameters();
+                // copied into a Type[], resolved types are stored into a clone of the array
+                return TypeResolver.resolve(this, Arrays.copyOf(variables, variables.length, Type[].class));
+            });
+        }
+        return types;
+    }
+
+    /**
+     * Drops cached metadata of a class, it is rebuilt on next registration
+     * @return true if the class was cached
+     */
+    public static boolean evict(Class<?> clazz) {
+        return cache.evict(clazz);
+    }
+
+    /**
+     * Drops cached metadata of all classes defined by the loader, typically before the loader is
+     * discarded. Metadata never keeps a class loader reachable on its own, so this only releases
+     * memory earlier than garbage collection of the classes would
+     * @param loader defining loader, null for the bootstrap loader
+     * @return number of evicted classes
+     */
+    public static int evict(ClassLoader loader) {
+        return cache.evict(loader);
+    }
+
+    /**
+     * @return number of classes currently cached
+     */
+    public static int cachedCount() {
+        return cache.size();
+    }
+
+    /**
+     * Bounds the number of cached classes, least recently used entries are evicted first.
+     * Access times are only recorded while a size or idle-time policy is set
+     * @param maximumSize maximum number of cached classes, 0 for unbounded
+     */
+    public static void setMaximumSize(int maximumSize) {
+        cache.setMaximumSize(maximumSize);
+    }
+
+    /**
+     * Evicts entries not accessed within the duration. Expired entries are swept while new
+     * classes are registered, or explicitly by {@link #evictExpired()}
+     * @param duration idle time, 0 to keep entries regardless of access
+     */
+    public static void setExpireAfterAccess(long duration, TimeUnit unit) {
+        cache.setExpireAfterAccess(duration, unit);
+    }
+
+    /**
+     * Applies the size and idle-time policy immediately
+     */
+    public static void evictExpired() {
+        cache.sweep();
+    }
+
+    /**
+     * Dense id of the class, unique among loaded classes and stable while the class is loaded
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * Generation of {@link #reload} the entry was published in, entries only derive from entries of
+     * the same or an older version
+     */
+    public long version() {
+        return version;
+    }
+
+    private SupertypeSet supertypeSet() {
+        SupertypeSet set = supertypeSet;
+        if (set == null) {
+            int[] ids = new int[1 + superClasses.length + interfaces.length];
+            int i = 0;
+            if (type != Object.class) {
+                ids[i++] = id;
+            }
+            for (Class<?> superClass : superClasses) {
+                if (superClass != Object.class) {
+                    ids[i++] = cache.id(superClass);
+                }
+            }
+            for (Class<?> anInterface : interfaces) {
+                ids[i++] = cache.id(anInterface);
+            }
+            set = SupertypeSet.of(Arrays.copyOf(ids, i));
+            supertypeSet = set;
+        }
+        return set;
+    }
+
+    /**
+     * Same answer as {@code supertype.isAssignableFrom(type)}, by a bit test on the supertype ids of this class.
+     * {@link Object} and covariant arrays are checked after a miss
+     */
+    public boolean isSubtypeOf(ReflectionMetaData supertype) {
+        if (supertypeSet().contains(supertype.id)) {
+            return true;
+        }
+        if (supertype.type == Object.class) {
+            return !type.isPrimitive();
+        }
+        if (type.isArray() && supertype.type.isArray()) {
+            Class<?> component = type.getComponentType();
+            Class<?> superComponent = supertype.type.getComponentType();
+            return !component.isPrimitive() && !superComponent.isPrimitive() &&
+                    isSubtypeOf(component, superComponent);
+        }
+        return false;
+    }
+
+    /**
+     * @see #isSubtypeOf(ReflectionMetaData)
+     */
+    public static boolean isSubtypeOf(Class<?> type, Class<?> supertype) {
+        return register(type).isSubtypeOf(register(supertype));
+    }
+
+    /**
+     * Classes and interfaces all the classes extend or implement, in the order super classes and
+     * interfaces of the first class are searched, the first class itself first.
+     * Computed by and-ing supertype bitsets word by word, array covariance is not considered
+     */
+    public static Class<?>[] commonSupertypes(Class<?>... classes) {
+        if (classes.length == 0) {
+            return MetaDataCache.NO_CLASSES;
+        }
+        ReflectionMetaData first = register(classes[0]);
+        SupertypeSet[] others = new SupertypeSet[classes.length - 1];
+        boolean objectCommon = !classes[0].isPrimitive();
+        for (int i = 1; i < classes.length; i++) {
+            others[i - 1] = register(classes[i]).supertypeSet();
+            objectCommon &= !classes[i].isPrimitive();
+        }
+        SupertypeSet firstSet = first.supertypeSet();
+        SupertypeSet common = firstSet.intersect(others);
+        List<Class<?>> result = new ArrayList<>();
+        if (common != null && common.contains(first.id)) {
+            result.add(first.type);
+        }
+        for (Class<?> superClass : first.superClasses) {
+            if (common != null && common.contains(cache.id(superClass))) {
+                result.add(superClass);
+            }
+        }
+        // left out of the bitsets, it is the last super class
+        if (objectCommon) {
+            result.add(Object.class);
+        }
+        for (Class<?> anInterface : first.interfaces) {
+            if (common != null && common.contains(cache.id(anInterface))) {
+                result.add(anInterface);
+            }
+        }
+        return result.toArray(MetaDataCache.NO_CLASSES);
     }
 
     public Class<?>[] getSuperClasses() {
@@ -153,17 +696,367 @@ public class ReflectionMetaData {
         return interfaces;
     }
 
+    /**
+     * @return Copy of the declared methods of this class, fetched from the JDK once
+     */
+    public Method[] getDeclaredMethods() {
+        return declaredMethods().clone();
+    }
+
+    /**
+     * Declared methods shared by the indexes of this package, must not be modified
+     */
+    Method[] declaredMethods() {
+        Method[] methods = declaredMethods;
+        if (methods == null) {
+            methods = type.getDeclaredMethods();
+            declaredMethods = methods;
+        }
+        return methods;
+    }
+
+    /**
+     * @return Copy of the declared fields of this class, fetched from the JDK once
+     */
+    public Field[] getDeclaredFields() {
+        return declaredFields().clone();
+    }
+
+    /**
+     * Declared fields shared by the indexes of this package, must not be modified
+     */
+    Field[] declaredFields() {
+        Field[] fields = declaredFields;
+        if (fields == null) {
+            fields = type.getDeclaredFields();
+            declaredFields = fields;
+        }
+        return fields;
+    }
+
+    MemberIndex memberIndex() {
+        MemberIndex index = memberIndex;
+        if (index == null) {
+            // building twice on a race is harmless, the index is immutable
+            index = new MemberIndex(this);
+            memberIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * @return Copy of all methods declared by this class, its super classes and interfaces,
+     *         in the order they are searched by {@link ReflectionUtils#findRequiredMethod}
+     */
+    public Method[] getHierarchyMethods() {
+        return memberIndex().methods().clone();
+    }
+
+    /**
+     * @return Copy of all fields declared by this class, its super classes and interfaces,
+     *         in the order they are searched by {@link ReflectionUtils#findRequiredField}
+     */
+    public Field[] getHierarchyFields() {
+        return memberIndex().fields().clone();
+    }
+
+    /**
+     * @return Copy of the methods with the name in this class and its super classes and interfaces,
+     *         in search order
+     */
+    public Method[] methodsNamed(String name) {
+        return memberIndex().methodsNamed(name).clone();
+    }
+
+    /**
+     * @return Copy of the methods with the name and parameter count in this class and its super classes
+     *         and interfaces, in search order
+     */
+    public Method[] methodsNamed(String name, int parameterCount) {
+        return memberIndex().methodsNamed(name, parameterCount).clone();
+    }
+
+    /**
+     * @return First method with exactly matching name and parameter types in this class
+     *         or its super classes and interfaces, null if absent
+     */
+    public Method findMethod(String name, Class<?>... parameterTypes) {
+        return memberIndex().findMethod(name, parameterTypes);
+    }
+
+    /**
+     * @return Copy of the fields with the name in this class and its super classes and interfaces,
+     *         in search order
+     */
+    public Field[] fieldsNamed(String name) {
+        return memberIndex().fieldsNamed(name).clone();
+    }
+
+    /**
+     * @return First field with the name in this class or its super classes and interfaces, null if absent
+     */
+    public Field findField(String name) {
+        Field[] fields = memberIndex().fieldsNamed(name);
+        return fields.length > 0 ? fields[0] : null;
+    }
+
+    /**
+     * Override relations of all declared methods of this class, computed on first use
+     */
+    public OverrideGraph overrideGraph() {
+        OverrideGraph graph = overrideGraph;
+        if (graph == null) {
+            graph = new OverrideGraph(this, type);
+            overrideGraph = graph;
+        }
+        return graph;
+    }
+
+    AnnotationIndex annotationIndex() {
+        AnnotationIndex index = annotationIndex;
+        if (index == null) {
+            index = new AnnotationIndex(this);
+            annotationIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Methods and fields of the whole hierarchy carrying the annotation, methods first.
+     * Methods inherit annotations of the methods they override, overridden and bridge methods are not listed.
+     * Each call returns a new array
+     */
+    public Member[] membersAnnotatedWith(Class<? extends Annotation> annotationType) {
+        return annotationIndex().members(annotationType).clone();
+    }
+
+    /**
+     * @see #membersAnnotatedWith(Class)
+     */
+    public Method[] methodsAnnotatedWith(Class<? extends Annotation> annotationType) {
+        return annotationIndex().methods(annotationType).clone();
+    }
+
+    /**
+     * @see #membersAnnotatedWith(Class)
+     */
+    public Field[] fieldsAnnotatedWith(Class<? extends Annotation> annotationType) {
+        return annotationIndex().fields(annotationType).clone();
+    }
+
+    /**
+     * @return Annotation of the hierarchy method or of the nearest method it overrides declaring it,
+     *         null if there is none
+     */
+    public <A extends Annotation> A findAnnotation(Method method, Class<A> annotationType) {
+        return annotationIndex().annotation(method, annotationType);
+    }
+
+    private PropertyIndex propertyIndex() {
+        PropertyIndex index = propertyIndex;
+        if (index == null) {
+            index = new PropertyIndex(this);
+            propertyIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Bean properties of the class, getter and setter pairs of the whole hierarchy with their types
+     * resolved against this class, in a new array on each call
+     */
+    public BeanProperty[] getProperties() {
+        return propertyIndex().properties().clone();
+    }
+
+    /**
+     * @return null if the class has no such property
+     */
+    public BeanProperty findProperty(String name) {
+        return propertyIndex().property(name);
+    }
+
+    /**
+     * Copier from the source class into this class, see {@link ReflectionUtils#copier(Class, Class)}.
+     * Copiers are cached in this entry, keyed by a source visible from this class's loader, or stored with
+     * the source class otherwise. They are compiled again once the source's entry was replaced by a reload
+     * or evicted
+     */
+    BeanCopier<Object, Object> copierFrom(Class<?> source) {
+        ClassKeyedCache<CachedCopier> copiers = memberCaches().copiers;
+        CachedCopier cached = copiers.get(source);
+        if (cached.source != cache.peek(source)) {
+            copiers.remove(source);
+            cached = copiers.get(source);
+        }
+        return cached.copier;
+    }
+
+    private CachedCopier compileCopier(Class<?> source) {
+        ReflectionMetaData sourceData = register(source);
+        List<Method> getters = new ArrayList<>();
+        List<Method> setters = new ArrayList<>();
+        for (BeanProperty sourceProperty : sourceData.propertyIndex().properties()) {
+            BeanProperty targetProperty = findProperty(sourceProperty.getName());
+            if (!sourceProperty.isReadable() || targetProperty == null || !targetProperty.isWritable()) {
+                continue;
+            }
+            Method setter = targetProperty.getSetter();
+            Type targetType = resolvedParameterTypes(setter)[0];
+            Type sourceType = sourceProperty.getType();
+            // a raw target type takes any subtype, a parameterized one only the same type
+            if (sourceType.equals(targetType) || targetType instanceof Class && !((Class<?>) targetType).isPrimitive() &&
+                    ((Class<?>) targetType).isAssignableFrom(sourceProperty.getRawType())) {
+                getters.add(sourceProperty.getGetter());
+                setters.add(setter);
+            }
+        }
+        return new CachedCopier(sourceData,
+                Invokers.copier(getters.toArray(MemberIndex.NO_METHODS), setters.toArray(MemberIndex.NO_METHODS)));
+    }
+
+    /**
+     * Dispatcher among the methods of the name in the hierarchy, see {@link ReflectionUtils#dispatcher(Class, String)}
+     */
+    public Dispatcher dispatcher(String name) {
+        return memberCaches().dispatchers.computeIfAbsent(name, k -> new Dispatcher(this, type, k));
+    }
+
+    private MemberCaches memberCaches() {
+        MemberCaches caches = memberCaches;
+        if (caches == null) {
+            synchronized (this) {
+                caches = memberCaches;
+                if (caches == null) {
+                    caches = new MemberCaches(this);
+                    memberCaches = caches;
+                }
+            }
+        }
+        return caches;
+    }
+
+    /**
+     * Generic parameter types of a method declared by this class, shared and not to be modified
+     */
+    Type[] genericParameterTypes(Method method) {
+        ConcurrentMap<Method, Type[]> parameterTypes = memberCaches().genericParameterTypes;
+        Type[] types = parameterTypes.get(method);
+        if (types == null) {
+            types = parameterTypes.computeIfAbsent(method, Method::getGenericParameterTypes);
+        }
+        return types;
+    }
+
+    MethodInvoker invoker(Method method) {
+        return memberCaches().invokers.computeIfAbsent(method, Invokers::invoker);
+    }
+
+    FieldAccessor accessor(Field field) {
+        return memberCaches().accessors.computeIfAbsent(field, Invokers::accessor);
+    }
+
+    /**
+     * Cached by functional interface, an interface of a child loader keeps its invokers itself
+     */
+    <F> F invoker(Method method, Class<F> functionalInterface) {
+        ClassKeyedCache<Object> byInterface = memberCaches().typedInvokers.computeIfAbsent(method,
+                k -> new ClassKeyedCache<>(type, functional -> Invokers.typedInvoker(method, functional)));
+        return functionalInterface.cast(byInterface.get(functionalInterface));
+    }
+
     public int indexOfTypeVariable(TypeVariable<?> typeVariable) {
+        int index = typeVariableIndex(typeVariable);
+        if (index < 0) {
+            throw new IllegalArgumentException("incorrect typeVariable: " + typeVariable);
+        }
+        return index;
+    }
+
+    /**
+     * @return Index of the type variable in type parameters of this class, -1 if it is not one of them
+     */
+    public int typeVariableIndex(TypeVariable<?> typeVariable) {
+        if (typeVariable.getGenericDeclaration() != type) {
+            return -1;
+        }
+        String name = typeVariable.getName();
+        TypeVariable<?>[] typeVariables = generics().typeVariables;
         for (int i = 0; i < typeVariables.length; i++) {
-            if (typeVariables[i].equals(typeVariable)) {
+            if (typeVariables[i] == typeVariable || typeVariables[i].getName().equals(name)) {
                 return i;
             }
         }
-        throw new IllegalArgumentException("incorrect typeVariable: " + typeVariable);
+        return -1;
     }
 
     public GenericTypeMapping actualTypeParameter(Class<?> parameterizedBase, int baseIndex) {
-        GenericTypeMapping[] mappings = typeParameterMap.get(parameterizedBase);
-        return mappings != null ? mappings[baseIndex] : new GenericTypeMapping(-1);
+        GenericTypeMapping[] mappings = generics().typeParameterMap.get(parameterizedBase);
+        return mappings != null ? mappings[baseIndex] : GenericTypeMapping.NONE;
+    }
+
+    TypeVariable<?> getTypeVariable(int index) {
+        return generics().typeVariables[index];
+    }
+
+    /**
+     * Resolves type variables of super classes and interfaces in the type to their actual types
+     * in the context class, through parameterized types, generic arrays and wildcards.
+     * Type variables not bound by the hierarchy of the context are kept
+     */
+    public static Type resolve(Type type, Class<?> context) {
+        return TypeResolver.resolve(register(context), type);
+    }
+
+    /**
+     * Resolved generic type of the field, cached per field and context class
+     */
+    public static Type resolveFieldType(Field field, Class<?> context) {
+        ReflectionMetaData data = memberContext(field, context);
+        return data.memberCaches().resolvedTypes.computeIfAbsent(field,
+                k -> TypeResolver.resolve(data, field.getGenericType()));
+    }
+
+    /**
+     * Resolved generic return type of the method, cached per method and context class
+     */
+    public static Type resolveReturnType(Method method, Class<?> context) {
+        return memberContext(method, context).resolvedReturnType(method);
+    }
+
+    /**
+     * Resolved generic return type of a hierarchy method as seen from this class
+     */
+    Type resolvedReturnType(Method method) {
+        return memberCaches().resolvedTypes.computeIfAbsent(method,
+                k -> TypeResolver.resolve(this, method.getGenericReturnType()));
+    }
+
+    /**
+     * Resolved generic parameter types of the method, cached per method and context class.
+     * The returned array is a copy
+     */
+    public static Type[] resolveParameterTypes(Method method, Class<?> context) {
+        return memberContext(method, context).resolvedParameterTypes(method).clone();
+    }
+
+    /**
+     * Resolved generic parameter types of a hierarchy method as seen from this class, shared and not to be modified
+     */
+    Type[] resolvedParameterTypes(Method method) {
+        ConcurrentMap<Method, Type[]> parameterTypes = memberCaches().resolvedParameterTypes;
+        Type[] types = parameterTypes.get(method);
+        if (types == null) {
+            types = parameterTypes.computeIfAbsent(method,
+                    k -> TypeResolver.resolve(this, method.getGenericParameterTypes()));
+        }
+        return types;
+    }
+
+    private static ReflectionMetaData memberContext(Member member, Class<?> context) {
+        if (!member.getDeclaringClass().isAssignableFrom(context)) {
+            throw new IllegalArgumentException(member + " is not a member of " + context);
+        }
+        return register(context);
     }
 }
@@ -0,0 +1,314 @@
+package indi.sophronia.util.reflection;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in instrumentation of the metadata cache and of the lookups of {@link ReflectionUtils}.
+ * Disabled by default, disabled hot paths only read a volatile flag.
+ * <p>JFR events of registrations and cache misses are emitted independently of this switch,
+ * whenever a recording enables them
+ */
+public final class ReflectionMetrics {
+    public static final String OBJECT_NAME = "indi.sophronia.util.reflection:type=ReflectionMetrics";
+
+    /**
+     * Registration latency buckets, bucket i counts latencies in [2^i, 2^(i+1)) nanoseconds
+     */
+    public static final int LATENCY_BUCKETS = 40;
+
+    private static volatile boolean enabled;
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder registrations = new LongAdder();
+    private static final LongAdder registrationNanos = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+    private static final LongAdder overridesCalls = new LongAdder();
+    private static final LongAdder findBaseMethodsCalls = new LongAdder();
+    private static final LongAdder[] registrationLatencies = new LongAdder[LATENCY_BUCKETS];
+
+    static {
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            registrationLatencies[i] = new LongAdder();
+        }
+    }
+
+    private ReflectionMetrics() {
+    }
+
+    public static void enable() {
+        enabled = true;
+    }
+
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Resets all counters, counts of concurrent updates may be partially lost
+     */
+    public static void reset() {
+        hits.reset();
+        misses.reset();
+        registrations.reset();
+        registrationNanos.reset();
+        evictions.reset();
+        overridesCalls.reset();
+        findBaseMethodsCalls.reset();
+        for (LongAdder bucket : registrationLatencies) {
+            bucket.reset();
+        }
+    }
+
+    public static Snapshot snapshot() {
+        long[] latencies = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            latencies[i] = registrationLatencies[i].sum();
+        }
+        return new Snapshot(hits.sum(), misses.sum(), registrations.sum(), registrationNanos.sum(),
+                evictions.sum(), ReflectionMetaData.cachedCount(),
+                overridesCalls.sum(), findBaseMethodsCalls.sum(), latencies);
+    }
+
+    /**
+     * Exports the metrics to the platform MBean server as {@link #OBJECT_NAME}
+     */
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MXBeanImpl(), name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to register " + OBJECT_NAME, e);
+        }
+    }
+
+    public static void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to unregister " + OBJECT_NAME, e);
+        }
+    }
+
+    static void hit() {
+        if (enabled) {
+            hits.increment();
+        }
+    }
+
+    static void miss() {
+        if (enabled) {
+            misses.increment();
+        }
+    }
+
+    static void registered(long nanos) {
+        if (enabled) {
+            registrations.increment();
+            registrationNanos.add(nanos);
+            int bucket = 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1));
+            registrationLatencies[Math.min(bucket, LATENCY_BUCKETS - 1)].increment();
+        }
+    }
+
+    static void evicted() {
+        if (enabled) {
+            evictions.increment();
+        }
+    }
+
+    static void overrides() {
+        if (enabled) {
+            overridesCalls.increment();
+        }
+    }
+
+    static void findBaseMethods() {
+        if (enabled) {
+            findBaseMethodsCalls.increment();
+        }
+    }
+
+    /**
+     * Counters read at one point in time, each counter is read separately
+     */
+    public static final class Snapshot {
+        private final long hits;
+        private final long misses;
+        private final long registrations;
+        private final long registrationNanos;
+        private final long evictions;
+        private final int cachedClasses;
+        private final long overridesCalls;
+        private final long findBaseMethodsCalls;
+        private final long[] registrationLatencies;
+
+        Snapshot(long hits, long misses, long registrations, long registrationNanos, long evictions,
+                 int cachedClasses, long overridesCalls, long findBaseMethodsCalls, long[] registrationLatencies) {
+            this.hits = hits;
+            this.misses = misses;
+            this.registrations = registrations;
+            this.registrationNanos = registrationNanos;
+            this.evictions = evictions;
+            this.cachedClasses = cachedClasses;
+            this.overridesCalls = overridesCalls;
+            this.findBaseMethodsCalls = findBaseMethodsCalls;
+            this.registrationLatencies = registrationLatencies;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Lookups not answered by a cached entry, including those waiting for another thread's build
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        /**
+         * Metadata built, by reflection or from generated metadata
+         */
+        public long getRegistrations() {
+            return registrations;
+        }
+
+        public long getRegistrationNanos() {
+            return registrationNanos;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getCachedClasses() {
+            return cachedClasses;
+        }
+
+        public long getOverridesCalls() {
+            return overridesCalls;
+        }
+
+        public long getFindBaseMethodsCalls() {
+            return findBaseMethodsCalls;
+        }
+
+        /**
+         * @see #LATENCY_BUCKETS
+         */
+        public long[] getRegistrationLatencies() {
+            return registrationLatencies;
+        }
+
+        /**
+         * @return Upper bound in nanoseconds of the latency bucket holding the percentile, 0 without registrations
+         */
+        public long registrationLatencyPercentile(double percentile) {
+            long rank = (long) Math.ceil(registrations * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < registrationLatencies.length; i++) {
+                seen += registrationLatencies[i];
+                if (seen >= rank && seen > 0) {
+                    return 1L << (i + 1);
+                }
+            }
+            return 0;
+        }
+    }
+
+    private static final class MXBeanImpl implements ReflectionMetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            ReflectionMetrics.enabled = enabled;
+        }
+
+        @Override
+        public long getHits() {
+            return hits.sum();
+        }
+
+        @Override
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        @Override
+        public double getHitRatio() {
+            return snapshot().getHitRatio();
+        }
+
+        @Override
+        public long getRegistrations() {
+            return registrations.sum();
+        }
+
+        @Override
+        public long getRegistrationNanos() {
+            return registrationNanos.sum();
+        }
+
+        @Override
+        public long getRegistrationLatencyP50() {
+            return snapshot().registrationLatencyPercentile(50);
+        }
+
+        @Override
+        public long getRegistrationLatencyP99() {
+            return snapshot().registrationLatencyPercentile(99);
+        }
+
+        @Override
+        public long[] getRegistrationLatencies() {
+            return snapshot().getRegistrationLatencies();
+        }
+
+        @Override
+        public long getEvictions() {
+            return evictions.sum();
+        }
+
+        @Override
+        public int getCachedClasses() {
+            return ReflectionMetaData.cachedCount();
+        }
+
+        @Override
+        public long getOverridesCalls() {
+            return overridesCalls.sum();
+        }
+
+        @Override
+        public long getFindBaseMethodsCalls() {
+            return findBaseMethodsCalls.sum();
+        }
+
+        @Override
+        public void reset() {
+            ReflectionMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package indi.sophronia.util.reflection;
+
+/**
+ * JMX view of {@link ReflectionMetrics}, registered by {@link ReflectionMetrics#registerMBean()}
+ */
+public interface ReflectionMetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getHits();
+
+    long getMisses();
+
+    double getHitRatio();
+
+    long getRegistrations();
+
+    long getRegistrationNanos();
+
+    /**
+     * Upper bound in nanoseconds of the median registration latency bucket
+     */
+    long getRegistrationLatencyP50();
+
+    long getRegistrationLatencyP99();
+
+    /**
+     * Bucket i counts registrations that took [2^i, 2^(i+1)) nanoseconds
+     */
+    long[] getRegistrationLatencies();
+
+    long getEvictions();
+
+    int getCachedClasses();
+
+    long getOverridesCalls();
+
+    long getFindBaseMethodsCalls();
+
+    void reset();
+}
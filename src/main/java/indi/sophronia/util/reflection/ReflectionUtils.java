@@ -1,12 +1,14 @@
 package indi.sophronia.util.reflection;
 
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ReflectionUtils {
     public static Class<?> findRequiredInterface(Class<?> base, Predicate<Class<?>> requirement) {
@@ -26,22 +28,31 @@ public class ReflectionUtils {
      * @return true if base method is overridden by drived
      */
     public static boolean overrides(Method base, Method drived) {
-        ReflectionMetaData baseData = ReflectionMetaData.register(base.getDeclaringClass());
-        ReflectionMetaData drivedData = ReflectionMetaData.register(drived.getDeclaringClass());
+        return overrides(ReflectionMetaData.register(base.getDeclaringClass()), base,
+                ReflectionMetaData.register(drived.getDeclaringClass()), drived);
+    }
 
+    /**
+     * Same as {@link #overrides(Method, Method)} with the metadata of the declaring classes given,
+     * e.g. an entry building its own {@link OverrideGraph}
+     */
+    static boolean overrides(ReflectionMetaData baseData, Method base, ReflectionMetaData drivedData, Method drived) {
+        ReflectionMetrics.overrides();
         if (base.getParameterCount() != drived.getParameterCount()) {
             return false;
         }
-        if (!base.getDeclaringClass().isAssignableFrom(drived.getDeclaringClass())) {
+        if (!drivedData.isSubtypeOf(baseData)) {
             return false;
         }
         if (!base.getName().equals(drived.getName())) {
             return false;
         }
 
-        for (int i = 0; i < base.getParameterCount(); i++) {
-            Type baseGenType = base.getGenericParameterTypes()[i];
-            Type drivedGenType = drived.getGenericParameterTypes()[i];
+        Type[] baseGenTypes = baseData.genericParameterTypes(base);
+        Type[] drivedGenTypes = drivedData.genericParameterTypes(drived);
+        for (int i = 0; i < baseGenTypes.length; i++) {
+            Type baseGenType = baseGenTypes[i];
+            Type drivedGenType = drivedGenTypes[i];
 
             // unmatched non-generic parameter type
             if (baseGenType instanceof Class && !baseGenType.equals(drivedGenType)) {
@@ -49,7 +60,14 @@ public class ReflectionUtils {
             }
 
             if (baseGenType instanceof TypeVariable) {
-                int indexInBase = baseData.indexOfTypeVariable((TypeVariable<?>) baseGenType);
+                int indexInBase = baseData.typeVariableIndex((TypeVariable<?>) baseGenType);
+                // type variable of the method, matched by position in type parameters of the methods
+                if (indexInBase < 0) {
+                    if (!sameMethodTypeVariable(base, (TypeVariable<?>) baseGenType, drived, drivedGenType)) {
+                        return false;
+                    }
+                    continue;
+                }
                 GenericTypeMapping inDrived = drivedData.actualTypeParameter(base.getDeclaringClass(), indexInBase);
 
                 if (!inDrived.generic()) {
@@ -65,7 +83,7 @@ public class ReflectionUtils {
                 // check if type parameter matches
                 if (drivedGenType instanceof TypeVariable) {
 
-                    int indexInDrived2 = drivedData.indexOfTypeVariable((TypeVariable<?>) drivedGenType);
+                    int indexInDrived2 = drivedData.typeVariableIndex((TypeVariable<?>) drivedGenType);
                     if (inDrived.index() != indexInDrived2) {
                         return false;
                     }
@@ -77,32 +95,57 @@ public class ReflectionUtils {
         return true;
     }
 
+    private static boolean sameMethodTypeVariable(Method base, TypeVariable<?> baseVariable,
+                                                  Method drived, Type drivedType) {
+        if (!(drivedType instanceof TypeVariable) ||
+                !((TypeVariable<?>) drivedType).getGenericDeclaration().equals(drived)) {
+            return false;
+        }
+        TypeVariable<Method>[] baseVariables = base.getTypeParameters();
+        TypeVariable<Method>[] drivedVariables = drived.getTypeParameters();
+        if (baseVariables.length != drivedVariables.length) {
+            return false;
+        }
+        for (int i = 0; i < baseVariables.length; i++) {
+            if (baseVariables[i].equals(baseVariable)) {
+                return drivedVariables[i].equals(drivedType);
+            }
+        }
+        return false;
+    }
+
     /**
+     * Members are answered from the hierarchy index of {@link ReflectionMetaData}, so the found
+     * method is shared with other callers
      * @return First method meeting the requirement in input class or its super classes and interfaces
      */
     public static Method findRequiredMethod(Class<?> clazz, Predicate<Method> requirement) {
-        Method m = findDeclaredMethod(clazz, requirement);
-        if (m != null) {
-            return m;
-        }
-        ReflectionMetaData data = ReflectionMetaData.register(clazz);
-        for (Class<?> superClass : data.getSuperClasses()) {
-            m = findDeclaredMethod(superClass, requirement);
-            if (m != null) {
-                return m;
-            }
-        }
-        for (Class<?> anInterface : data.getInterfaces()) {
-            m = findDeclaredMethod(anInterface, requirement);
-            if (m != null) {
-                return m;
+        for (Method method : ReflectionMetaData.register(clazz).memberIndex().methods()) {
+            if (requirement.test(method)) {
+                return method;
             }
         }
         return null;
     }
 
+    /**
+     * Methods of the class and all its super classes and interfaces, in the order {@link #findRequiredMethod}
+     * searches them. The hierarchy is registered and walked only when the stream is consumed
+     */
+    public static Stream<Method> methods(Class<?> clazz) {
+        return StreamSupport.stream(new HierarchySpliterator<>(clazz, ReflectionMetaData::declaredMethods), false);
+    }
+
+    /**
+     * Fields of the class and all its super classes and interfaces, in the order {@link #findRequiredField}
+     * searches them. The hierarchy is registered and walked only when the stream is consumed
+     */
+    public static Stream<Field> fields(Class<?> clazz) {
+        return StreamSupport.stream(new HierarchySpliterator<>(clazz, ReflectionMetaData::declaredFields), false);
+    }
+
     public static Method findDeclaredMethod(Class<?> clazz, Predicate<Method> requirement) {
-        for (Method declaredMethod : clazz.getDeclaredMethods()) {
+        for (Method declaredMethod : ReflectionMetaData.register(clazz).declaredMethods()) {
             if (requirement.test(declaredMethod)) {
                 return declaredMethod;
             }
@@ -111,31 +154,21 @@ public class ReflectionUtils {
     }
 
     /**
+     * Members are answered from the hierarchy index of {@link ReflectionMetaData}, so the found
+     * field is shared with other callers
      * @return First field meeting the requirement in input class or its super classes and interfaces
      */
     public static Field findRequiredField(Class<?> clazz, Predicate<Field> requirement) {
-        Field f = findDeclaredField(clazz, requirement);
-        if (f != null) {
-            return f;
-        }
-        ReflectionMetaData data = ReflectionMetaData.register(clazz);
-        for (Class<?> superClass : data.getSuperClasses()) {
-            f = findDeclaredField(superClass, requirement);
-            if (f != null) {
-                return f;
-            }
-        }
-        for (Class<?> anInterface : data.getInterfaces()) {
-            f = findDeclaredField(anInterface, requirement);
-            if (f != null) {
-                return f;
+        for (Field field : ReflectionMetaData.register(clazz).memberIndex().fields()) {
+            if (requirement.test(field)) {
+                return field;
             }
         }
         return null;
     }
 
     public static Field findDeclaredField(Class<?> clazz, Predicate<Field> requirement) {
-        for (Field declaredField : clazz.getDeclaredFields()) {
+        for (Field declaredField : ReflectionMetaData.register(clazz).declaredFields()) {
             if (requirement.test(declaredField)) {
                 return declaredField;
             }
@@ -144,26 +177,85 @@ public class ReflectionUtils {
     }
 
     /**
-     * @return All methods overridden by the input method in all super classes
+     * Answered from the {@link OverrideGraph} of the declaring class
+     * @return Copy of all methods overridden by the input method in all super classes
      *         and interfaces of its declaring class
      */
     public static Method[] findBaseMethods(Method drivedMethod) {
-        List<Method> methods = new ArrayList<>();
+        return baseMethods(drivedMethod).clone();
+    }
+
+    /**
+     * Shared array behind {@link #findBaseMethods(Method)}, must not be modified
+     */
+    static Method[] baseMethods(Method drivedMethod) {
+        ReflectionMetrics.findBaseMethods();
         ReflectionMetaData data = ReflectionMetaData.register(drivedMethod.getDeclaringClass());
-        for (Class<?> superClass : data.getSuperClasses()) {
-            for (Method declaredMethod : superClass.getDeclaredMethods()) {
-                if (overrides(declaredMethod, drivedMethod)) {
-                    methods.add(declaredMethod);
-                }
-            }
-        }
-        for (Class<?> anInterface : data.getInterfaces()) {
-            for (Method declaredMethod : anInterface.getDeclaredMethods()) {
-                if (overrides(declaredMethod, drivedMethod)) {
-                    methods.add(declaredMethod);
-                }
-            }
-        }
-        return methods.toArray(new Method[0]);
+        return data.overrideGraph().bases(drivedMethod);
+    }
+
+    /**
+     * Members of the class and its supertypes carrying the annotation, methods inherit annotations of
+     * the methods they override
+     * @see ReflectionMetaData#membersAnnotatedWith(Class)
+     */
+    public static Member[] membersAnnotatedWith(Class<?> clazz, Class<? extends Annotation> annotationType) {
+        return ReflectionMetaData.register(clazz).membersAnnotatedWith(annotationType);
+    }
+
+    /**
+     * @return Annotation of the method or of the nearest method it overrides declaring it, null if there is none
+     */
+    public static <A extends Annotation> A findAnnotation(Method method, Class<A> annotationType) {
+        return ReflectionMetaData.register(method.getDeclaringClass()).findAnnotation(method, annotationType);
+    }
+
+    /**
+     * Compiled invoker of the method, built from a method handle once and cached with the
+     * metadata of its declaring class. Avoids the access check of {@link Method#invoke} on every call
+     */
+    public static MethodInvoker invoker(Method method) {
+        return ReflectionMetaData.register(method.getDeclaringClass()).invoker(method);
+    }
+
+    /**
+     * Strongly typed invoker implementing a functional interface, e.g. a
+     * {@link java.util.function.ToIntFunction} for an int getter, so that primitives are neither
+     * boxed nor spread into an argument array. Instance methods take their receiver as first
+     * parameter of the interface method. Built with {@link java.lang.invoke.LambdaMetafactory}
+     * once per method and interface, and cached with the metadata of the declaring class
+     */
+    public static <F> F invoker(Method method, Class<F> functionalInterface) {
+        return ReflectionMetaData.register(method.getDeclaringClass()).invoker(method, functionalInterface);
+    }
+
+    /**
+     * Compiled getter and setter of the field with primitive-specialized variants,
+     * cached with the metadata of its declaring class
+     */
+    public static FieldAccessor accessor(Field field) {
+        return ReflectionMetaData.register(field.getDeclaringClass()).accessor(field);
+    }
+
+    /**
+     * Copier of the bean properties the source and target classes share: each readable property of the
+     * source is copied into the writable property of the target having the same name and the same
+     * resolved type, or a raw type it is assignable to. Compiled into one method handle chain once per
+     * pair of classes and cached with the metadata of the target class, or with the source class when
+     * the target's loader cannot see it. Compiled again after the source is reloaded
+     */
+    @SuppressWarnings("unchecked")
+    public static <S, T> BeanCopier<S, T> copier(Class<S> source, Class<T> target) {
+        return (BeanCopier<S, T>) (BeanCopier<?, ?>) ReflectionMetaData.register(target).copierFrom(source);
+    }
+
+    /**
+     * Dispatcher selecting the most specific method of the name in the class and its supertypes for
+     * the runtime classes of arguments, with parameter types resolved against the class. Selections
+     * are kept in a bounded inline cache keyed by the argument classes, so steady-state dispatch is
+     * one scan of a few entries. Cached with the metadata of the class
+     */
+    public static Dispatcher dispatcher(Class<?> clazz, String name) {
+        return ReflectionMetaData.register(clazz).dispatcher(name);
     }
 }
@@ -0,0 +1,105 @@
+package indi.sophronia.util.reflection;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of class ids. Ids are global and never reused, so the ids of one hierarchy spread
+ * further apart as more classes are cached: the densest suffix of the sorted ids is held as bitset
+ * words, never more words than ids, and the lower ids in a sorted array
+ */
+final class SupertypeSet {
+    private static final SupertypeSet EMPTY = new SupertypeSet(0, new long[0], new int[0]);
+
+    private final int wordOffset;
+    private final long[] words;
+
+    /**
+     * Ids below the words, sorted
+     */
+    private final int[] sparse;
+
+    private SupertypeSet(int wordOffset, long[] words, int[] sparse) {
+        this.wordOffset = wordOffset;
+        this.words = words;
+        this.sparse = sparse;
+    }
+
+    static SupertypeSet of(int[] ids) {
+        if (ids.length == 0) {
+            return EMPTY;
+        }
+        int[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        int last = sorted.length - 1;
+        // lowest id from which the words spanning the ids do not outnumber them
+        int start = last;
+        for (int i = 0; i < last; i++) {
+            if ((sorted[last] >>> 6) - (sorted[i] >>> 6) < sorted.length - i) {
+                start = i;
+                break;
+            }
+        }
+        int wordOffset = sorted[start] >>> 6;
+        long[] words = new long[(sorted[last] >>> 6) - wordOffset + 1];
+        for (int i = start; i <= last; i++) {
+            words[(sorted[i] >>> 6) - wordOffset] |= 1L << sorted[i];
+        }
+        return new SupertypeSet(wordOffset, words, Arrays.copyOf(sorted, start));
+    }
+
+    boolean contains(int id) {
+        int word = (id >>> 6) - wordOffset;
+        if (word < 0) {
+            return sparse.length != 0 && Arrays.binarySearch(sparse, id) >= 0;
+        }
+        return word < words.length && (words[word] & (1L << id)) != 0;
+    }
+
+    /**
+     * @return Bits of the ids in the word of the index, counted from id 0
+     */
+    private long word(int word) {
+        int i = word - wordOffset;
+        if (i >= 0) {
+            return i < words.length ? words[i] : 0;
+        }
+        long bits = 0;
+        int from = Arrays.binarySearch(sparse, word << 6);
+        for (int j = from < 0 ? -from - 1 : from; j < sparse.length && sparse[j] >>> 6 == word; j++) {
+            bits |= 1L << sparse[j];
+        }
+        return bits;
+    }
+
+    /**
+     * @return Ids of this set contained in all the others, and-ed word by word over the words of this set,
+     *         null if the intersection is empty
+     */
+    SupertypeSet intersect(SupertypeSet[] others) {
+        long[] result = new long[words.length];
+        boolean empty = true;
+        for (int i = 0; i < words.length; i++) {
+            long bits = words[i];
+            for (int j = 0; j < others.length && bits != 0; j++) {
+                bits &= others[j].word(wordOffset + i);
+            }
+            result[i] = bits;
+            empty &= bits == 0;
+        }
+        int[] kept = new int[sparse.length];
+        int count = 0;
+        for (int id : sparse) {
+            boolean common = true;
+            for (int j = 0; j < others.length && common; j++) {
+                common = others[j].contains(id);
+            }
+            if (common) {
+                kept[count++] = id;
+            }
+        }
+        if (empty && count == 0) {
+            return null;
+        }
+        return new SupertypeSet(wordOffset, result, Arrays.copyOf(kept, count));
+    }
+}
@@ -0,0 +1,102 @@
+package indi.sophronia.util.reflection;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable, compact form of the mapping table of {@link ReflectionMetaData}: parallel arrays of
+ * mapped types and rows in insertion order, with an open addressing index over the types.
+ * Rows are interned, so classes inheriting an identical row from a common ancestor share one
+ * instance, and rows hold the shared {@link GenericTypeMapping} flyweights
+ */
+final class TypeParameterTable {
+    private static final WeakInterner<Row> ROWS = new WeakInterner<>();
+
+    /**
+     * Interning key and canonical holder of one row
+     */
+    private static final class Row {
+        final GenericTypeMapping[] mappings;
+        final int hash;
+
+        Row(GenericTypeMapping[] mappings) {
+            this.mappings = mappings;
+            this.hash = Arrays.hashCode(mappings);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Row && Arrays.equals(mappings, ((Row) o).mappings);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final Class<?>[] types;
+    private final Row[] rows;
+
+    /**
+     * Position + 1 of the type in {@link #types}, 0 for empty slots
+     */
+    private final int[] slots;
+
+    TypeParameterTable(Map<Class<?>, GenericTypeMapping[]> entries) {
+        int size = entries.size();
+        this.types = new Class<?>[size];
+        this.rows = new Row[size];
+        this.slots = new int[Integer.highestOneBit(Math.max(size, 1) * 2) * 2];
+        int i = 0;
+        for (Map.Entry<Class<?>, GenericTypeMapping[]> entry : entries.entrySet()) {
+            types[i] = entry.getKey();
+            rows[i] = ROWS.intern(new Row(canonical(entry.getValue())));
+            int mask = slots.length - 1;
+            int slot = types[i].hashCode() & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = ++i;
+        }
+    }
+
+    private static GenericTypeMapping[] canonical(GenericTypeMapping[] mappings) {
+        GenericTypeMapping[] canonical = new GenericTypeMapping[mappings.length];
+        for (int i = 0; i < mappings.length; i++) {
+            GenericTypeMapping mapping = mappings[i];
+            canonical[i] = mapping.instantiated() ?
+                    GenericTypeMapping.of(mapping.instanceType(), mapping.index()) :
+                    GenericTypeMapping.of(mapping.index());
+        }
+        return canonical;
+    }
+
+    /**
+     * @return Shared row of the type, null if it is not mapped
+     */
+    GenericTypeMapping[] get(Class<?> type) {
+        int mask = slots.length - 1;
+        for (int slot = type.hashCode() & mask; ; slot = (slot + 1) & mask) {
+            int position = slots[slot];
+            if (position == 0) {
+                return null;
+            }
+            if (types[position - 1] == type) {
+                return rows[position - 1].mappings;
+            }
+        }
+    }
+
+    int size() {
+        return types.length;
+    }
+
+    Class<?> type(int i) {
+        return types[i];
+    }
+
+    GenericTypeMapping[] row(int i) {
+        return rows[i].mappings;
+    }
+}
@@ -0,0 +1,137 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.reflect.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Substitutes type variables of a type by their actual types as seen from a context class,
+ * through parameterized types, generic arrays and wildcards
+ */
+final class TypeResolver {
+    private final ReflectionMetaData context;
+
+    /**
+     * Type variables being resolved, a variable met again is bounded by itself through a raw super type
+     */
+    private final Deque<TypeVariable<?>> resolving = new ArrayDeque<>();
+
+    private TypeResolver(ReflectionMetaData context) {
+        this.context = context;
+    }
+
+    /**
+     * @return Canonical resolved type, see {@link Types#canonical(Type)}
+     */
+    static Type resolve(ReflectionMetaData context, Type type) {
+        return Types.canonical(new TypeResolver(context).resolve(type));
+    }
+
+    /**
+     * @return New array of canonical resolved types
+     */
+    static Type[] resolve(ReflectionMetaData context, Type[] types) {
+        Type[] resolved = new TypeResolver(context).resolveAll(types);
+        Type[] canonical = new Type[resolved.length];
+        for (int i = 0; i < resolved.length; i++) {
+            canonical[i] = Types.canonical(resolved[i]);
+        }
+        return canonical;
+    }
+
+    private Type resolve(Type type) {
+        if (type instanceof Class) {
+            return type;
+        }
+        if (type instanceof TypeVariable) {
+            return resolveVariable((TypeVariable<?>) type);
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Type owner = parameterized.getOwnerType();
+            Type resolvedOwner = owner != null ? resolve(owner) : null;
+            Type[] arguments = parameterized.getActualTypeArguments();
+            Type[] resolvedArguments = resolveAll(arguments);
+            if (resolvedOwner == owner && resolvedArguments == arguments) {
+                return type;
+            }
+            return Types.parameterized(resolvedOwner, (Class<?>) parameterized.getRawType(), resolvedArguments);
+        }
+        if (type instanceof GenericArrayType) {
+            Type component = ((GenericArrayType) type).getGenericComponentType();
+            Type resolvedComponent = resolve(component);
+            return resolvedComponent == component ? type : Types.arrayOf(resolvedComponent);
+        }
+        if (type instanceof WildcardType) {
+            WildcardType wildcard = (WildcardType) type;
+            Type[] upperBounds = wildcard.getUpperBounds();
+            Type[] lowerBounds = wildcard.getLowerBounds();
+            Type[] resolvedUpperBounds = resolveAll(upperBounds);
+            Type[] resolvedLowerBounds = resolveAll(lowerBounds);
+            if (resolvedUpperBounds == upperBounds && resolvedLowerBounds == lowerBounds) {
+                return type;
+            }
+            return Types.wildcard(resolvedUpperBounds, resolvedLowerBounds);
+        }
+        return type;
+    }
+
+    /**
+     * @return The array itself if no element changed
+     */
+    private Type[] resolveAll(Type[] types) {
+        Type[] resolved = types;
+        for (int i = 0; i < types.length; i++) {
+            Type type = resolve(types[i]);
+            if (type != types[i]) {
+                if (resolved == types) {
+                    resolved = types.clone();
+                }
+                resolved[i] = type;
+            }
+        }
+        return resolved;
+    }
+
+    private Type resolveVariable(TypeVariable<?> variable) {
+        GenericDeclaration declaration = variable.getGenericDeclaration();
+        // type variables of methods and constructors are not bound by the hierarchy
+        if (!(declaration instanceof Class)) {
+            return variable;
+        }
+        Class<?> declaringClass = (Class<?>) declaration;
+        int index = ReflectionMetaData.register(declaringClass).indexOfTypeVariable(variable);
+        GenericTypeMapping mapping = context.actualTypeParameter(declaringClass, index);
+        if (!mapping.generic()) {
+            return variable;
+        }
+        if (!mapping.instantiated()) {
+            return context.getTypeVariable(mapping.index());
+        }
+        if (resolving.contains(variable)) {
+            return erasure(variable);
+        }
+        resolving.push(variable);
+        try {
+            return resolve(mapping.instanceType());
+        } finally {
+            resolving.pop();
+        }
+    }
+
+    static Class<?> erasure(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof GenericArrayType) {
+            return (Class<?>) Types.arrayOf(erasure(((GenericArrayType) type).getGenericComponentType()));
+        }
+        if (type instanceof TypeVariable) {
+            return erasure(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        return erasure(((WildcardType) type).getUpperBounds()[0]);
+    }
+}
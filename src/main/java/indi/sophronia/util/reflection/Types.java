@@ -0,0 +1,297 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.reflect.*;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * Factory of {@link Type} instances, used by generated metadata and by type resolution.
+ * Created types are equal to, and hash like, the JDK instances describing the same type
+ */
+public final class Types {
+    private static final Type[] NO_TYPES = new Type[0];
+    private static final Type[] OBJECT_BOUND = {Object.class};
+
+    private static final WeakInterner<Type> CANONICAL = new WeakInterner<>();
+
+    private Types() {
+    }
+
+    /**
+     * @param owner owner type, null for the declaring class of the raw type like the JDK does
+     */
+    public static ParameterizedType parameterized(Type owner, Class<?> raw, Type... arguments) {
+        return new ParameterizedTypeImpl(owner != null ? owner : raw.getDeclaringClass(), raw, arguments.clone());
+    }
+
+    /**
+     * @return array class if the component is a {@link Class}, generic array type otherwise
+     */
+    public static Type arrayOf(Type component) {
+        if (component instanceof Class) {
+            return Array.newInstance((Class<?>) component, 0).getClass();
+        }
+        return new GenericArrayTypeImpl(component);
+    }
+
+    /**
+     * @param upperBounds upper bounds, empty for {@code Object}
+     */
+    public static WildcardType wildcard(Type[] upperBounds, Type[] lowerBounds) {
+        return new WildcardTypeImpl(upperBounds.length == 0 ? OBJECT_BOUND : upperBounds.clone(),
+                lowerBounds.length == 0 ? NO_TYPES : lowerBounds.clone());
+    }
+
+    /**
+     * Canonical instance of the type: structurally equal types give the same instance, so they can be
+     * compared by identity, and their hashes are precomputed. Classes are canonical already, other
+     * types are held weakly and never keep their classes reachable. Types of the JDK, hashed and
+     * compared tree-wise on every call, are recorded by identity once their canonical instance is known
+     */
+    public static Type canonical(Type type) {
+        if (type == null || type instanceof Class) {
+            return type;
+        }
+        boolean foreign = !(type instanceof InternableType || type instanceof TypeVariable);
+        if (foreign) {
+            Type known = CANONICAL.getAlias(type);
+            if (known != null) {
+                return known;
+            }
+        } else if (type instanceof InternableType && ((InternableType) type).interned) {
+            return type;
+        }
+        Type canonical = CANONICAL.get(type);
+        if (canonical == null) {
+            canonical = CANONICAL.intern(rebuild(type));
+            if (canonical instanceof InternableType) {
+                ((InternableType) canonical).interned = true;
+            }
+        }
+        if (foreign && canonical != type) {
+            CANONICAL.alias(type, canonical);
+        }
+        return canonical;
+    }
+
+    /**
+     * @return Equal type made of canonical parts
+     */
+    private static Type rebuild(Type type) {
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            return new ParameterizedTypeImpl(canonical(parameterized.getOwnerType()),
+                    (Class<?>) parameterized.getRawType(), canonicalAll(parameterized.getActualTypeArguments()));
+        }
+        if (type instanceof GenericArrayType) {
+            return new GenericArrayTypeImpl(canonical(((GenericArrayType) type).getGenericComponentType()));
+        }
+        if (type instanceof WildcardType) {
+            WildcardType wildcard = (WildcardType) type;
+            return new WildcardTypeImpl(canonicalAll(wildcard.getUpperBounds()),
+                    canonicalAll(wildcard.getLowerBounds()));
+        }
+        // type variables are identified by declaration and name, their bounds are left as they are
+        return type;
+    }
+
+    /**
+     * Canonicalizes the elements in place, the array has to be a copy
+     */
+    private static Type[] canonicalAll(Type[] types) {
+        for (int i = 0; i < types.length; i++) {
+            types[i] = canonical(types[i]);
+        }
+        return types;
+    }
+
+    public static TypeVariable<?> typeVariable(Class<?> declaration, int index) {
+        return declaration.getTypeParameters()[index];
+    }
+
+    /**
+     * Loads a class that generated code cannot reference by a literal
+     * @param anchor class whose loader defines or can see the requested class
+     */
+    public static Class<?> forName(Class<?> anchor, String binaryName) {
+        try {
+            return Class.forName(binaryName, false, anchor.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("generated metadata refers to missing class: " + binaryName, e);
+        }
+    }
+
+    /**
+     * Type implemented here, marked once it is the canonical instance
+     */
+    private abstract static class InternableType {
+        /**
+         * Only ever set on canonical instances, a stale false only costs a lookup
+         */
+        boolean interned;
+    }
+
+    private static final class ParameterizedTypeImpl extends InternableType implements ParameterizedType {
+        private final Type ownerType;
+        private final Class<?> rawType;
+        private final Type[] actualTypeArguments;
+        private final int hash;
+
+        ParameterizedTypeImpl(Type ownerType, Class<?> rawType, Type[] actualTypeArguments) {
+            this.ownerType = ownerType;
+            this.rawType = rawType;
+            this.actualTypeArguments = actualTypeArguments;
+            this.hash = Arrays.hashCode(actualTypeArguments) ^ Objects.hashCode(ownerType) ^ rawType.hashCode();
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return actualTypeArguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return rawType;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return ownerType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ParameterizedType)) {
+                return false;
+            }
+            ParameterizedType that = (ParameterizedType) o;
+            return rawType.equals(that.getRawType()) &&
+                    Objects.equals(ownerType, that.getOwnerType()) &&
+                    Arrays.equals(actualTypeArguments, that.getActualTypeArguments());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            if (ownerType != null) {
+                sb.append(ownerType.getTypeName()).append('$');
+                if (ownerType instanceof ParameterizedType) {
+                    String ownerName = ((Class<?>) ((ParameterizedType) ownerType).getRawType()).getName();
+                    sb.append(rawType.getName().replace(ownerName + "$", ""));
+                } else {
+                    sb.append(rawType.getSimpleName());
+                }
+            } else {
+                sb.append(rawType.getName());
+            }
+            StringJoiner arguments = new StringJoiner(", ", "<", ">");
+            arguments.setEmptyValue("");
+            for (Type argument : actualTypeArguments) {
+                arguments.add(argument.getTypeName());
+            }
+            return sb.append(arguments).toString();
+        }
+    }
+
+    private static final class GenericArrayTypeImpl extends InternableType implements GenericArrayType {
+        private final Type genericComponentType;
+        private final int hash;
+
+        GenericArrayTypeImpl(Type genericComponentType) {
+            this.genericComponentType = genericComponentType;
+            this.hash = genericComponentType.hashCode();
+        }
+
+        @Override
+        public Type getGenericComponentType() {
+            return genericComponentType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            return o instanceof GenericArrayType &&
+                    genericComponentType.equals(((GenericArrayType) o).getGenericComponentType());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return genericComponentType.getTypeName() + "[]";
+        }
+    }
+
+    private static final class WildcardTypeImpl extends InternableType implements WildcardType {
+        private final Type[] upperBounds;
+        private final Type[] lowerBounds;
+        private final int hash;
+
+        WildcardTypeImpl(Type[] upperBounds, Type[] lowerBounds) {
+            this.upperBounds = upperBounds;
+            this.lowerBounds = lowerBounds;
+            this.hash = Arrays.hashCode(lowerBounds) ^ Arrays.hashCode(upperBounds);
+        }
+
+        @Override
+        public Type[] getUpperBounds() {
+            return upperBounds.clone();
+        }
+
+        @Override
+        public Type[] getLowerBounds() {
+            return lowerBounds.clone();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof WildcardType)) {
+                return false;
+            }
+            WildcardType that = (WildcardType) o;
+            return Arrays.equals(lowerBounds, that.getLowerBounds()) &&
+                    Arrays.equals(upperBounds, that.getUpperBounds());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            Type[] bounds = lowerBounds;
+            StringBuilder sb = new StringBuilder();
+            if (lowerBounds.length > 0) {
+                sb.append("? super ");
+            } else if (upperBounds.length > 0 && !upperBounds[0].equals(Object.class)) {
+                bounds = upperBounds;
+                sb.append("? extends ");
+            } else {
+                return "?";
+            }
+            StringJoiner joiner = new StringJoiner(" & ");
+            for (Type bound : bounds) {
+                joiner.add(bound.getTypeName());
+            }
+            return sb.append(joiner).toString();
+        }
+    }
+}
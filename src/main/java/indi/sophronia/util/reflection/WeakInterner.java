@@ -0,0 +1,131 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Returns one canonical instance per equal value. Canonical instances are only weakly held, so
+ * interning never keeps a value, or the classes it refers to, reachable. Lookups take no lock.
+ * Values known equal to a canonical instance can be recorded as aliases, found again by identity
+ * without hashing or comparing them
+ */
+final class WeakInterner<T> {
+    private final ReferenceQueue<T> collected = new ReferenceQueue<>();
+    private final ConcurrentMap<Object, WeakKey<T>> canonical = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, WeakReference<T>> aliases = new ConcurrentHashMap<>();
+
+    /**
+     * Weakly held value with its hash, equal to keys and probes of a live equal value, or of the
+     * identical value for aliases. A cleared key only equals itself
+     */
+    private static final class WeakKey<T> extends WeakReference<T> {
+        final int hash;
+        final boolean identity;
+
+        WeakKey(T referent, int hash, boolean identity, ReferenceQueue<? super T> queue) {
+            super(referent, queue);
+            this.hash = hash;
+            this.identity = identity;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            T referent = get();
+            return referent != null && o instanceof WeakKey &&
+                    matches(referent, ((WeakKey<?>) o).get(), identity);
+        }
+    }
+
+    /**
+     * Looks up keys without creating a reference
+     */
+    private static final class Probe {
+        final Object value;
+        final int hash;
+        final boolean identity;
+
+        Probe(Object value, int hash, boolean identity) {
+            this.value = value;
+            this.hash = hash;
+            this.identity = identity;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof WeakKey && matches(value, ((WeakKey<?>) o).get(), identity);
+        }
+    }
+
+    private static boolean matches(Object value, Object other, boolean identity) {
+        return value == other || !identity && other != null && value.equals(other);
+    }
+
+    /**
+     * @return Canonical instance equal to the value, null if there is none yet
+     */
+    T get(T value) {
+        WeakKey<T> key = canonical.get(new Probe(value, value.hashCode(), false));
+        return key != null ? key.get() : null;
+    }
+
+    T intern(T value) {
+        expungeCollected();
+        WeakKey<T> key = new WeakKey<>(value, value.hashCode(), false, collected);
+        for (;;) {
+            WeakKey<T> existing = canonical.putIfAbsent(key, key);
+            if (existing == null) {
+                return value;
+            }
+            T found = existing.get();
+            if (found != null) {
+                return found;
+            }
+            // collected after it was matched
+            canonical.remove(existing, existing);
+        }
+    }
+
+    /**
+     * @return Canonical instance recorded for the identical value, null if none was or it was collected
+     */
+    T getAlias(T value) {
+        WeakReference<T> ref = aliases.get(new Probe(value, System.identityHashCode(value), true));
+        return ref != null ? ref.get() : null;
+    }
+
+    /**
+     * Records the canonical instance of a value that is not canonical itself
+     */
+    void alias(T value, T canonicalValue) {
+        expungeCollected();
+        aliases.put(new WeakKey<>(value, System.identityHashCode(value), true, collected),
+                new WeakReference<>(canonicalValue));
+    }
+
+    private void expungeCollected() {
+        for (Reference<? extends T> ref; (ref = collected.poll()) != null; ) {
+            WeakKey<?> key = (WeakKey<?>) ref;
+            if (key.identity) {
+                aliases.remove(key);
+            } else {
+                canonical.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package indi.sophronia.util.reflection.processor;
+
+import indi.sophronia.util.reflection.PrecomputedMetaData;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates {@code <binary name>$$MetaData} for types annotated with {@link PrecomputedMetaData}.
+ * The hierarchy walk mirrors the reflective constructor of
+ * {@link indi.sophronia.util.reflection.ReflectionMetaData} step by step, over the compiler's
+ * type model instead of {@link java.lang.reflect.Type}, so the generated tables are identical
+ */
+@SupportedAnnotationTypes("indi.sophronia.util.reflection.PrecomputedMetaData")
+public class MetaDataProcessor extends AbstractProcessor {
+    private static final String SUFFIX = "$$MetaData";
+    private static final String RUNTIME = "indi.sophronia.util.reflection.";
+
+    /**
+     * Thrown for types the generated code cannot express, the annotated type then keeps using reflection
+     */
+    private static final class UnsupportedTypeException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedTypeException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Mapping {
+        final int index;
+        final TypeMirror staticType;
+
+        Mapping(int index, TypeMirror staticType) {
+            this.index = index;
+            this.staticType = staticType;
+        }
+    }
+
+    private static final class TypeModel {
+        final TypeElement type;
+        final List<TypeElement> superClasses = new ArrayList<>();
+        final Set<TypeElement> interfaces = new LinkedHashSet<>();
+        final Map<TypeElement, Mapping[]> typeParameterMap = new LinkedHashMap<>();
+
+        TypeModel(TypeElement type) {
+            this.type = type;
+        }
+    }
+
+    private final Map<TypeElement, TypeModel> models = new HashMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(PrecomputedMetaData.class)) {
+            if (!(element instanceof TypeElement)) {
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            try {
+                generate(type, model(type));
+            } catch (UnsupportedTypeException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "metadata not generated, falls back to reflection: " + e.getMessage(), type);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "failed to write generated metadata: " + e.getMessage(), type);
+            }
+        }
+        return false;
+    }
+
+    private TypeModel model(TypeElement type) {
+        TypeModel model = models.get(type);
+        if (model == null) {
+            model = build(type);
+            models.put(type, model);
+        }
+        return model;
+    }
+
+    private TypeModel build(TypeElement type) {
+        TypeModel model = new TypeModel(type);
+        List<? extends TypeParameterElement> typeParameters = type.getTypeParameters();
+        Mapping[] baseMapping = new Mapping[typeParameters.size()];
+        for (int i = 0; i < baseMapping.length; i++) {
+            baseMapping[i] = new Mapping(i, null);
+        }
+        model.typeParameterMap.put(type, baseMapping);
+
+        for (TypeMirror i : type.getInterfaces()) {
+            DeclaredType genericInterface = (DeclaredType) i;
+            TypeModel data = model((TypeElement) genericInterface.asElement());
+            if (!genericInterface.getTypeArguments().isEmpty()) {
+                handleGenericSuper(model, data, genericInterface.getTypeArguments(), false);
+            }
+            model.interfaces.add(data.type);
+            model.interfaces.addAll(data.interfaces);
+        }
+
+        TypeMirror superType = type.getSuperclass();
+        if (superType.getKind() == TypeKind.DECLARED) {
+            DeclaredType genericSuper = (DeclaredType) superType;
+            TypeModel superData = model((TypeElement) genericSuper.asElement());
+            model.superClasses.add(superData.type);
+            if (!genericSuper.getTypeArguments().isEmpty()) {
+                handleGenericSuper(model, superData, genericSuper.getTypeArguments(), true);
+            } else if (!superData.type.getTypeParameters().isEmpty()) {
+                handleRawGenericSuper(model, superData);
+            }
+            model.superClasses.addAll(superData.superClasses);
+            model.interfaces.addAll(superData.interfaces);
+        }
+        return model;
+    }
+
+    /**
+     * Same rule as the reflective build: rows inherited through interfaces keep the first mapping found,
+     * the super class overrides them
+     */
+    private static void handleGenericSuper(TypeModel model, TypeModel superData,
+                                           List<? extends TypeMirror> actualTypeArguments, boolean override) {
+        List<? extends TypeParameterElement> currentTypeParameters = model.type.getTypeParameters();
+        Mapping[] superMapping = new Mapping[actualTypeArguments.size()];
+        for (int i = 0; i < superMapping.length; i++) {
+            TypeMirror argument = actualTypeArguments.get(i);
+            int j = argument.getKind() == TypeKind.TYPEVAR ?
+                    currentTypeParameters.indexOf(((TypeVariable) argument).asElement()) : -1;
+            superMapping[i] = j >= 0 ? new Mapping(j, null) : new Mapping(i, argument);
+        }
+        model.typeParameterMap.put(superData.type, superMapping);
+
+        for (Map.Entry<TypeElement, Mapping[]> entry : superData.typeParameterMap.entrySet()) {
+            if (!override && model.typeParameterMap.containsKey(entry.getKey())) {
+                continue;
+            }
+            Mapping[] inherited = entry.getValue();
+            Mapping[] mappings = new Mapping[inherited.length];
+            for (int i = 0; i < inherited.length; i++) {
+                mappings[i] = inherited[i].staticType != null ? inherited[i] : superMapping[inherited[i].index];
+            }
+            model.typeParameterMap.put(entry.getKey(), mappings);
+        }
+    }
+
+    private static void handleRawGenericSuper(TypeModel model, TypeModel superData) {
+        for (Map.Entry<TypeElement, Mapping[]> entry : superData.typeParameterMap.entrySet()) {
+            List<? extends TypeParameterElement> typeParameters = entry.getKey().getTypeParameters();
+            Mapping[] decayedMappings = new Mapping[entry.getValue().length];
+            for (int i = 0; i < decayedMappings.length; i++) {
+                decayedMappings[i] = new Mapping(i, typeParameters.get(i).getBounds().get(0));
+            }
+            model.typeParameterMap.put(entry.getKey(), decayedMappings);
+        }
+    }
+
+    private void generate(TypeElement type, TypeModel model) throws UnsupportedTypeException, IOException {
+        Elements elements = processingEnv.getElementUtils();
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String generatedName = binaryName + SUFFIX;
+        String simpleName = generatedName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+        CodeContext context = new CodeContext(packageName, simpleName);
+
+        StringBuilder code = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            code.append("package ").append(packageName).append(";\n\n");
+        }
+        code.append("/**\n * Generated by ").append(MetaDataProcessor.class.getName())
+                .append(" from ").append(type.getQualifiedName()).append("\n */\n");
+        code.append("public final class ").append(simpleName)
+                .append(" implements ").append(RUNTIME).append("GeneratedMetaData {\n");
+
+        appendClassArray(code, "superClasses", model.superClasses, context);
+        appendClassArray(code, "interfaces", model.interfaces, context);
+        appendClassArray(code, "mappedTypes", model.typeParameterMap.keySet(), context);
+
+        code.append("    @Override\n    public ").append(RUNTIME).append("GenericTypeMapping[][] mappings() {\n")
+                .append("        return new ").append(RUNTIME).append("GenericTypeMapping[][]{\n");
+        for (Mapping[] row : model.typeParameterMap.values()) {
+            code.append("                {");
+            for (int i = 0; i < row.length; i++) {
+                code.append(i > 0 ? ", " : "").append("new ").append(RUNTIME).append("GenericTypeMapping(");
+                if (row[i].staticType != null) {
+                    code.append(typeExpression(row[i].staticType, context)).append(", ");
+                }
+                code.append(row[i].index).append(')');
+            }
+            code.append("},\n");
+        }
+        code.append("        };\n    }\n}\n");
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(generatedName, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write(code.toString());
+        }
+    }
+
+    private void appendClassArray(StringBuilder code, String method, Collection<TypeElement> classes,
+                                  CodeContext context) {
+        code.append("    @Override\n    public Class<?>[] ").append(method).append("() {\n")
+                .append("        return new Class<?>[]{");
+        boolean first = true;
+        for (TypeElement element : classes) {
+            code.append(first ? "" : ", ").append(classExpression(element, context));
+            first = false;
+        }
+        code.append("};\n    }\n\n");
+    }
+
+    private static final class CodeContext {
+        final String packageName;
+        final String simpleName;
+
+        CodeContext(String packageName, String simpleName) {
+            this.packageName = packageName;
+            this.simpleName = simpleName;
+        }
+    }
+
+    private String typeExpression(TypeMirror type, CodeContext context) throws UnsupportedTypeException {
+        switch (type.getKind()) {
+            case DECLARED: {
+                DeclaredType declared = (DeclaredType) type;
+                TypeElement element = (TypeElement) declared.asElement();
+                TypeMirror enclosing = declared.getEnclosingType();
+                boolean parameterizedOwner = enclosing.getKind() == TypeKind.DECLARED &&
+                        !((DeclaredType) enclosing).getTypeArguments().isEmpty();
+                if (declared.getTypeArguments().isEmpty() && !parameterizedOwner) {
+                    return classExpression(element, context);
+                }
+                StringBuilder sb = new StringBuilder(RUNTIME).append("Types.parameterized(")
+                        .append(parameterizedOwner ? typeExpression(enclosing, context) : "null")
+                        .append(", ").append(classExpression(element, context));
+                for (TypeMirror argument : declared.getTypeArguments()) {
+                    sb.append(", ").append(typeExpression(argument, context));
+                }
+                return sb.append(')').toString();
+            }
+            case ARRAY:
+                return RUNTIME + "Types.arrayOf(" +
+                        typeExpression(((ArrayType) type).getComponentType(), context) + ")";
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case CHAR:
+            case FLOAT:
+            case DOUBLE:
+                return type + ".class";
+            case TYPEVAR: {
+                TypeParameterElement parameter = (TypeParameterElement) ((TypeVariable) type).asElement();
+                Element declaration = parameter.getGenericElement();
+                if (!(declaration instanceof TypeElement)) {
+                    throw new UnsupportedTypeException("type variable " + type + " of " + declaration);
+                }
+                return RUNTIME + "Types.typeVariable(" + classExpression((TypeElement) declaration, context) +
+                        ", " + ((TypeElement) declaration).getTypeParameters().indexOf(parameter) + ")";
+            }
+            case WILDCARD: {
+                WildcardType wildcard = (WildcardType) type;
+                String upper = wildcard.getExtendsBound() != null ?
+                        typeExpression(wildcard.getExtendsBound(), context) : "";
+                String lower = wildcard.getSuperBound() != null ?
+                        typeExpression(wildcard.getSuperBound(), context) : "";
+                return RUNTIME + "Types.wildcard(new java.lang.reflect.Type[]{" + upper +
+                        "}, new java.lang.reflect.Type[]{" + lower + "})";
+            }
+            default:
+                throw new UnsupportedTypeException("type " + type + " of kind " + type.getKind());
+        }
+    }
+
+    /**
+     * Class literal if the generated class can see the type, loaded by name otherwise
+     */
+    private String classExpression(TypeElement element, CodeContext context) {
+        if (accessible(element, context.packageName)) {
+            return element.getQualifiedName() + ".class";
+        }
+        return RUNTIME + "Types.forName(" + context.simpleName + ".class, \"" +
+                processingEnv.getElementUtils().getBinaryName(element) + "\")";
+    }
+
+    private boolean accessible(TypeElement element, String packageName) {
+        boolean samePackage = processingEnv.getElementUtils().getPackageOf(element)
+                .getQualifiedName().contentEquals(packageName);
+        for (Element e = element; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            NestingKind nesting = ((TypeElement) e).getNestingKind();
+            if (nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS) {
+                return false;
+            }
+            Set<Modifier> modifiers = e.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (!modifiers.contains(Modifier.PUBLIC) && !samePackage) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,87 @@
+package indi.sophronia.util.reflection;
+
+import indi.sophronia.util.reflection.types.Base;
+import indi.sophronia.util.reflection.types.Drived;
+import indi.sophronia.util.reflection.types.Drived2;
+import indi.sophronia.util.reflection.types.Dto;
+import indi.sophronia.util.reflection.types.Entity;
+import indi.sophronia.util.reflection.types.StringHandler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.Map;
+
+/**
+ * Fails if a warmed up query allocates, measured by the allocation counter of the current thread
+ */
+public class AllocationTest {
+    private static final int WARMUP = 200_000;
+    private static final int CALLS = 100_000;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws NoSuchMethodException {
+        Method mapPut = Map.class.getDeclaredMethod("put", Object.class, Object.class);
+        Method basePut = Base.class.getDeclaredMethod("put", Number.class, Integer.class);
+        Method baseGetV = Base.class.getDeclaredMethod("getV", Object.class, Number.class);
+        Method drivedGetV = Drived.class.getDeclaredMethod("getV", Object.class, Number.class);
+        Method drived2Put = Drived2.class.getDeclaredMethod("put", Double.class, Integer.class);
+        ReflectionMetaData drived2 = ReflectionMetaData.register(Drived2.class);
+        TypeVariable<?> v = Drived2.class.getTypeParameters()[1];
+        TypeVariable<?> foreign = Map.class.getTypeParameters()[0];
+        BeanCopier<Entity, Dto> copier = ReflectionUtils.copier(Entity.class, Dto.class);
+        Entity entity = new Entity();
+        entity.setId(42L);
+        entity.setVersion(3);
+        Dto dto = new Dto();
+        Dispatcher dispatcher = ReflectionUtils.dispatcher(StringHandler.class, "handle");
+        Class<?>[][] argumentTypes = {{String.class}, {Integer.class}, {Long.class}, {StringBuilder.class}};
+
+        check("overrides(Map.put, Drived2.put)", () -> sink = ReflectionUtils.overrides(mapPut, drived2Put));
+        check("overrides(Base.put, Drived2.put)", () -> sink = ReflectionUtils.overrides(basePut, drived2Put));
+        check("overrides(Base.getV, Drived.getV)", () -> sink = ReflectionUtils.overrides(baseGetV, drivedGetV));
+        check("baseMethods(Drived2.put)", () -> sink = ReflectionUtils.baseMethods(drived2Put));
+        check("actualTypeParameter hit", () -> sink = drived2.actualTypeParameter(Base.class, 1));
+        check("actualTypeParameter miss", () -> sink = drived2.actualTypeParameter(Comparable.class, 0));
+        check("indexOfTypeVariable", () -> sink = drived2.indexOfTypeVariable(v));
+        check("typeVariableIndex miss", () -> sink = drived2.typeVariableIndex(foreign));
+        Type canonical = Types.canonical(Map.class.getMethod("entrySet").getGenericReturnType());
+        check("canonical hit", () -> sink = Types.canonical(canonical));
+        check("dispatcher.resolve", () -> {
+            for (Class<?>[] types : argumentTypes) {
+                sink = dispatcher.resolve(types);
+            }
+        });
+        check("copier(Entity, Dto).copy", () -> {
+            try {
+                copier.copy(entity, dto);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static void check(String query, Runnable call) {
+        for (int i = 0; i < WARMUP; i++) {
+            call.run();
+        }
+        long thread = Thread.currentThread().getId();
+        long overhead = threads.getThreadAllocatedBytes(thread);
+        overhead = threads.getThreadAllocatedBytes(thread) - overhead;
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < CALLS; i++) {
+            call.run();
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+        double perCall = (double) allocated / CALLS;
+        System.out.println(query + ": " + perCall + " bytes/call");
+        if (perCall >= 1) {
+            throw new AssertionError(query + " allocates " + perCall + " bytes per call");
+        }
+    }
+}
@@ -3,10 +3,20 @@ package indi.sophronia.util.reflection;
 import indi.sophronia.util.reflection.types.Base;
 import indi.sophronia.util.reflection.types.Drived;
 import indi.sophronia.util.reflection.types.Drived2;
+import indi.sophronia.util.reflection.types.Dto;
+import indi.sophronia.util.reflection.types.Entity;
+import indi.sophronia.util.reflection.types.StringHandler;
+import indi.sophronia.util.reflection.types.StringChannel;
+import indi.sophronia.util.reflection.types.Marker;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 public class ReflectionTest {
     public static void main(String[] args) throws NoSuchMethodException {
@@ -41,6 +51,15 @@ public class ReflectionTest {
                 System.out.println(data.actualTypeParameter(Base.class, 1).instanceType());
                 System.out.println(data.actualTypeParameter(Base.class, 2).instanceType());
                 System.out.println(data.actualTypeParameter(Base.class, 2).instanceType());
+                try {
+                    Method getV = Base.class.getDeclaredMethod("getV", Object.class, Number.class);
+                    System.out.println(ReflectionMetaData.resolveReturnType(getV, getClass()));
+                    System.out.println(Arrays.toString(ReflectionMetaData.resolveParameterTypes(getV, getClass())));
+                    System.out.println(ReflectionMetaData.resolve(
+                            Types.parameterized(null, List.class, Base.class.getTypeParameters()[1]), getClass()));
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalStateException(e);
+                }
             }
         };
 
@@ -48,6 +67,92 @@ public class ReflectionTest {
                 findBaseMethods(Drived2.class.getDeclaredMethod("put", Double.class, Integer.class))));
 
         parameterizedFunc();
+
+        ReflectionMetaData drived2Data = ReflectionMetaData.register(Drived2.class);
+        System.out.println(drived2Data.findMethod("put", Object.class, Object.class));
+        System.out.println(Arrays.toString(drived2Data.methodsNamed("getV")));
+        System.out.println(Arrays.toString(drived2Data.overrideGraph().
+                overridingMethods(Map.class.getDeclaredMethod("put", Object.class, Object.class))));
+
+        System.out.println(sortedNames(ReflectionMetaData.registeredSubtypes(Base.class, 0, Character.class)));
+        System.out.println(sortedNames(ReflectionMetaData.registeredSubtypes(Base.class, 1,
+                Types.parameterized(null, List.class, Types.parameterized(null, List.class, Object[].class)))));
+
+        System.out.println(ReflectionUtils.methods(Drived2.class).
+                filter(m -> m.getName().equals("getV")).map(Method::getDeclaringClass).collect(Collectors.toList()));
+        System.out.println(Arrays.toString(drived2Data.membersAnnotatedWith(Marker.class)));
+        System.out.println(ReflectionMetaData.isSubtypeOf(Drived2.class, Map.class) + " " +
+                Arrays.toString(ReflectionMetaData.commonSupertypes(Drived.class, Drived2.class)));
+        System.out.println(ReflectionUtils.findAnnotation(Drived2.class.getDeclaredMethod("getK"), Marker.class).value());
+
+        System.out.println(Arrays.toString(ReflectionMetaData.register(Entity.class).getProperties()));
+        Entity entity = new Entity();
+        entity.setId(42L);
+        entity.setName("entity");
+        entity.setVersion(3);
+        entity.setActive(true);
+        entity.setTags(Arrays.asList("a", "b"));
+        Dto dto = new Dto();
+        try {
+            ReflectionUtils.copier(Entity.class, Dto.class).copy(entity, dto);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        System.out.println(dto);
+
+        Dispatcher dispatcher = ReflectionUtils.dispatcher(StringHandler.class, "handle");
+        try {
+            StringHandler handler = new StringHandler();
+            for (Object message : Arrays.asList("text", new StringBuilder("builder"), 1L, 2)) {
+                System.out.println(dispatcher.invoke(handler, message));
+            }
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (Class<?> precomputed : Arrays.asList(Base.class, Drived.class, Drived2.class, StringChannel.class)) {
+            System.out.println(precomputed.getSimpleName() + " precomputed as reflected: " +
+                    sameMetaData(ReflectionMetaData.register(precomputed),
+                            ReflectionMetaData.fromReflection(precomputed), precomputed));
+        }
+
+        ReflectionMetaData reloadedBase = ReflectionMetaData.reload(Base.class, ReflectionMetaData::fromReflection);
+        ReflectionMetaData reloadedDrived2 = ReflectionMetaData.register(Drived2.class);
+        System.out.println((reloadedDrived2 != drived2Data) + " " + (reloadedDrived2.version() == reloadedBase.version()) +
+                " " + reloadedDrived2.actualTypeParameter(Base.class, 2).instanceType());
+
+        Type reflected = java.util.HashMap.class.getGenericSuperclass();
+        Type built = Types.parameterized(null, java.util.AbstractMap.class, java.util.HashMap.class.getTypeParameters());
+        System.out.println((Types.canonical(reflected) == Types.canonical(built)) + " " + (reflected != built));
+    }
+
+    private static List<String> sortedNames(Class<?>[] classes) {
+        List<String> names = new ArrayList<>();
+        for (Class<?> clazz : classes) {
+            names.add(clazz.getName());
+        }
+        names.sort(null);
+        return names;
+    }
+
+    private static boolean sameMetaData(ReflectionMetaData a, ReflectionMetaData b, Class<?> type) {
+        if (!Arrays.equals(a.getSuperClasses(), b.getSuperClasses()) ||
+                !Arrays.equals(a.getInterfaces(), b.getInterfaces())) {
+            return false;
+        }
+        List<Class<?>> mapped = new ArrayList<>(Arrays.asList(a.getSuperClasses()));
+        mapped.addAll(Arrays.asList(a.getInterfaces()));
+        mapped.add(type);
+        for (Class<?> base : mapped) {
+            for (int i = 0; i < base.getTypeParameters().length; i++) {
+                GenericTypeMapping x = a.actualTypeParameter(base, i);
+                GenericTypeMapping y = b.actualTypeParameter(base, i);
+                if (x.index() != y.index() || !Objects.equals(x.instanceType(), y.instanceType())) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     private static <T> void parameterizedFunc() {
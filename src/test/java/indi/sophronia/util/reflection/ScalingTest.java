@@ -0,0 +1,177 @@
+package indi.sophronia.util.reflection;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.function.IntFunction;
+
+/**
+ * Fails if registration, generic mapping queries or override lookups grow faster than the metadata
+ * they produce, on synthetic hierarchies of growing depth and width. Growth is the slope of cost
+ * against metadata size on a log-log scale, between the smallest and the largest hierarchy.
+ * Metadata size is the number of supertype entries of all classes, itself quadratic in depth.
+ * Allocated bytes are the precise signal, times are the best of a few runs and get more slack
+ */
+public class ScalingTest {
+    private static final int REPETITIONS = 5;
+    private static final int CALLS = 500_000;
+
+    /**
+     * Slopes allowed for work done once per class, in memory and time, and for cached queries
+     */
+    private static final double MEMORY_SLOPE = 1.15;
+    private static final double TIME_SLOPE = 1.4;
+    private static final double WARM_SLOPE = 0.3;
+
+    /**
+     * Depth of the chain that has to register and answer queries without overflowing the stack,
+     * beyond the 1,600 levels of the recursive builds this library started from. The JVM itself
+     * fails to link synthetic chains of about 3,500 levels
+     */
+    private static final int DEEP_CHAIN = 2000;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile Object sink;
+
+    private static final class Cost {
+        long size;
+        long registerNanos = Long.MAX_VALUE;
+        long registerBytes = Long.MAX_VALUE;
+        long genericsNanos = Long.MAX_VALUE;
+        long genericsBytes = Long.MAX_VALUE;
+        long overridesNanos = Long.MAX_VALUE;
+        long overridesBytes = Long.MAX_VALUE;
+        double mappingNanos = Double.MAX_VALUE;
+        double baseMethodsNanos = Double.MAX_VALUE;
+    }
+
+    public static void main(String[] args) {
+        scale("chain depth", new int[]{50, 100, 200, 400}, depth -> SyntheticHierarchy.chain(depth, 3), "value");
+        deepChain();
+        scale("diamond width", new int[]{4, 8, 16, 32}, width -> SyntheticHierarchy.diamonds(width, 4), "get");
+        // linking a class under full diamonds takes the JVM itself exponential time beyond about 10 layers
+        scale("diamond layers", new int[]{2, 4, 6, 8}, layers -> SyntheticHierarchy.diamonds(4, layers), "get");
+    }
+
+    /**
+     * @param hierarchies hierarchy by parameter, root first and leaf last
+     * @param method name of the method the leaf declares and overrides
+     */
+    private static void scale(String parameter, int[] parameters, IntFunction<Class<?>[]> hierarchies, String method) {
+        // compiles the paths measured below
+        measure(hierarchies.apply(parameters[0]), method);
+        Cost[] costs = new Cost[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            costs[i] = measure(hierarchies.apply(parameters[i]), method);
+            Cost cost = costs[i];
+            System.out.printf("%s %d: size %d, register %d us %d B, generics %d us %d B, " +
+                            "overrides %d us %d B, mapping %.1f ns, base methods %.1f ns%n",
+                    parameter, parameters[i], cost.size, cost.registerNanos / 1000, cost.registerBytes,
+                    cost.genericsNanos / 1000, cost.genericsBytes, cost.overridesNanos / 1000, cost.overridesBytes,
+                    cost.mappingNanos, cost.baseMethodsNanos);
+        }
+        Cost first = costs[0];
+        Cost last = costs[costs.length - 1];
+        check(parameter, "register time", first.size, last.size, first.registerNanos, last.registerNanos, TIME_SLOPE);
+        check(parameter, "register memory", first.size, last.size, first.registerBytes, last.registerBytes, MEMORY_SLOPE);
+        check(parameter, "generics time", first.size, last.size, first.genericsNanos, last.genericsNanos, TIME_SLOPE);
+        check(parameter, "generics memory", first.size, last.size, first.genericsBytes, last.genericsBytes, MEMORY_SLOPE);
+        check(parameter, "overrides time", first.size, last.size, first.overridesNanos, last.overridesNanos, TIME_SLOPE);
+        check(parameter, "overrides memory", first.size, last.size,
+                first.overridesBytes, last.overridesBytes, MEMORY_SLOPE);
+        check(parameter, "actualTypeParameter", first.size, last.size, first.mappingNanos, last.mappingNanos, WARM_SLOPE);
+        check(parameter, "findBaseMethods", first.size, last.size,
+                first.baseMethodsNanos, last.baseMethodsNanos, WARM_SLOPE);
+    }
+
+    /**
+     * Registers the hierarchy cold several times, evicting it in between, and keeps the cheapest run
+     */
+    private static Cost measure(Class<?>[] classes, String methodName) {
+        Class<?> root = classes[0];
+        Class<?> leaf = classes[classes.length - 1];
+        Method method = declaredMethod(leaf, methodName);
+        long thread = Thread.currentThread().getId();
+        Cost cost = new Cost();
+        for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+            long bytes = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            ReflectionMetaData data = ReflectionMetaData.register(leaf);
+            cost.registerNanos = Math.min(cost.registerNanos, System.nanoTime() - start);
+            cost.registerBytes = Math.min(cost.registerBytes, threads.getThreadAllocatedBytes(thread) - bytes);
+
+            bytes = threads.getThreadAllocatedBytes(thread);
+            start = System.nanoTime();
+            sink = data.actualTypeParameter(root, 0);
+            cost.genericsNanos = Math.min(cost.genericsNanos, System.nanoTime() - start);
+            cost.genericsBytes = Math.min(cost.genericsBytes, threads.getThreadAllocatedBytes(thread) - bytes);
+
+            bytes = threads.getThreadAllocatedBytes(thread);
+            start = System.nanoTime();
+            sink = ReflectionUtils.findBaseMethods(method);
+            cost.overridesNanos = Math.min(cost.overridesNanos, System.nanoTime() - start);
+            cost.overridesBytes = Math.min(cost.overridesBytes, threads.getThreadAllocatedBytes(thread) - bytes);
+
+            cost.mappingNanos = Math.min(cost.mappingNanos, perCall(() -> sink = data.actualTypeParameter(root, 0)));
+            cost.baseMethodsNanos = Math.min(cost.baseMethodsNanos,
+                    perCall(() -> sink = ReflectionUtils.baseMethods(method)));
+
+            cost.size = 0;
+            for (Class<?> type : classes) {
+                ReflectionMetaData typeData = ReflectionMetaData.register(type);
+                cost.size += 1 + typeData.getSuperClasses().length + typeData.getInterfaces().length;
+            }
+            ReflectionMetaData.evict(leaf.getClassLoader());
+        }
+        return cost;
+    }
+
+    /**
+     * Registers a chain far deeper than the measured ones and queries its leaf, fails on a stack overflow
+     */
+    private static void deepChain() {
+        Class<?>[] classes = SyntheticHierarchy.chain(DEEP_CHAIN, 3);
+        Class<?> leaf = classes[classes.length - 1];
+        try {
+            ReflectionMetaData data = ReflectionMetaData.register(leaf);
+            sink = data.actualTypeParameter(classes[0], 0);
+            sink = ReflectionUtils.findBaseMethods(declaredMethod(leaf, "value"));
+            sink = data.getProperties();
+        } catch (StackOverflowError e) {
+            throw new AssertionError("chain depth " + DEEP_CHAIN + " overflows the stack", e);
+        }
+        System.out.println("chain depth " + DEEP_CHAIN + ": registered");
+        ReflectionMetaData.evict(leaf.getClassLoader());
+    }
+
+    private static Method declaredMethod(Class<?> type, String name) {
+        for (Method method : type.getDeclaredMethods()) {
+            if (method.getName().equals(name) && !method.isBridge()) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(type + " declares no " + name);
+    }
+
+    private static double perCall(Runnable call) {
+        for (int i = 0; i < CALLS; i++) {
+            call.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            call.run();
+        }
+        return (double) (System.nanoTime() - start) / CALLS;
+    }
+
+    private static void check(String parameter, String cost, long firstSize, long lastSize,
+                              double firstCost, double lastCost, double allowedSlope) {
+        double slope = Math.log(Math.max(lastCost, 1) / Math.max(firstCost, 1)) / Math.log((double) lastSize / firstSize);
+        System.out.printf("%s: %s slope %.2f%n", parameter, cost, slope);
+        if (slope > allowedSlope) {
+            throw new AssertionError(cost + " grows with " + parameter + " at slope " + slope +
+                    " against metadata size, more than " + allowedSlope);
+        }
+    }
+}
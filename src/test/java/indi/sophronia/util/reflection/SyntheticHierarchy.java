@@ -0,0 +1,238 @@
+package indi.sophronia.util.reflection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Generates large hierarchies at runtime. Class files are written directly, abstract classes and
+ * interfaces with abstract methods and generic signatures only, and defined by a fresh class loader
+ * per hierarchy, so each can be registered cold and dropped
+ */
+final class SyntheticHierarchy {
+    private static final String PACKAGE = "synthetic/";
+    private static final String OBJECT = "java/lang/Object";
+
+    private SyntheticHierarchy() {
+    }
+
+    /**
+     * Generic classes {@code C0 .. C(depth - 1)}, each extending the previous one with its
+     * {@code typeParameters} type parameters rotated by one, and overriding {@code value}
+     * whose return and parameter types are type parameters
+     * @return The classes, root first
+     */
+    static Class<?>[] chain(int depth, int typeParameters) {
+        if (typeParameters < 2) {
+            throw new IllegalArgumentException("at least two type parameters: " + typeParameters);
+        }
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        StringBuilder declaration = new StringBuilder("<");
+        for (int i = 0; i < typeParameters; i++) {
+            declaration.append('T').append(i).append(":L" + OBJECT + ";");
+        }
+        declaration.append('>');
+        StringBuilder rotated = new StringBuilder("<");
+        for (int i = 0; i < typeParameters; i++) {
+            rotated.append("TT").append((i + 1) % typeParameters).append(';');
+        }
+        rotated.append('>');
+
+        for (int i = 0; i < depth; i++) {
+            String name = PACKAGE + "C" + i;
+            String superName = i > 0 ? PACKAGE + "C" + (i - 1) : OBJECT;
+            String signature = declaration + "L" + superName + (i > 0 ? rotated : "") + ";";
+            String methodSignature = "(TT" + (i + 1) % typeParameters + ";)TT" + i % typeParameters + ";";
+            classes.put(name, new ClassFile(name, false, superName, signature)
+                    .method("value", "(L" + OBJECT + ";)L" + OBJECT + ";", methodSignature)
+                    .toBytes());
+        }
+        return load(classes);
+    }
+
+    /**
+     * {@code layers} layers of {@code width} generic interfaces each extending all interfaces
+     * of the layer below, implemented by the class {@code D} with {@code String}. Every interface
+     * declares {@code T get()}, overridden by {@code D}
+     * @return The interfaces layer by layer, then {@code D}
+     */
+    static Class<?>[] diamonds(int width, int layers) {
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (int layer = 0; layer < layers; layer++) {
+            for (int i = 0; i < width; i++) {
+                String name = PACKAGE + "I" + layer + "_" + i;
+                ClassFile file = new ClassFile(name, true, OBJECT,
+                        "<T:L" + OBJECT + ";>L" + OBJECT + ";" + (layer > 0 ? layer(layer - 1, width, "TT;") : ""));
+                if (layer > 0) {
+                    for (int j = 0; j < width; j++) {
+                        file.implement(PACKAGE + "I" + (layer - 1) + "_" + j);
+                    }
+                }
+                classes.put(name, file.method("get", "()L" + OBJECT + ";", "()TT;").toBytes());
+            }
+        }
+        ClassFile leaf = new ClassFile(PACKAGE + "D", false, OBJECT,
+                "L" + OBJECT + ";" + layer(layers - 1, width, "Ljava/lang/String;"));
+        for (int j = 0; j < width; j++) {
+            leaf.implement(PACKAGE + "I" + (layers - 1) + "_" + j);
+        }
+        classes.put(PACKAGE + "D", leaf.method("get", "()Ljava/lang/String;", null).toBytes());
+        return load(classes);
+    }
+
+    private static String layer(int layer, int width, String argument) {
+        StringBuilder signature = new StringBuilder();
+        for (int i = 0; i < width; i++) {
+            signature.append('L').append(PACKAGE).append('I').append(layer).append('_').append(i)
+                    .append('<').append(argument).append(">;");
+        }
+        return signature.toString();
+    }
+
+    /**
+     * @param classes class files by internal name
+     * @return Loaded classes in the order of the class files
+     */
+    private static Class<?>[] load(Map<String, byte[]> classes) {
+        ClassLoader loader = new ClassLoader(SyntheticHierarchy.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                byte[] bytes = classes.get(name.replace('.', '/'));
+                if (bytes == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+        };
+        Class<?>[] loaded = new Class<?>[classes.size()];
+        int i = 0;
+        for (String name : classes.keySet()) {
+            try {
+                loaded[i++] = Class.forName(name.replace('/', '.'), false, loader);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Java 8 class file of an abstract class or an interface, declaring public abstract methods
+     */
+    private static final class ClassFile {
+        private static final int ACC_PUBLIC = 0x0001;
+        private static final int ACC_SUPER = 0x0020;
+        private static final int ACC_INTERFACE = 0x0200;
+        private static final int ACC_ABSTRACT = 0x0400;
+
+        private final Map<String, Integer> utf8 = new HashMap<>();
+        private final Map<String, Integer> classes = new HashMap<>();
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        private final DataOutputStream poolOut = new DataOutputStream(pool);
+        private int poolSize = 1;
+
+        private final boolean isInterface;
+        private final int thisClass;
+        private final int superClass;
+        private final int signature;
+        private final List<Integer> interfaces = new ArrayList<>();
+        private final List<int[]> methods = new ArrayList<>();
+
+        ClassFile(String name, boolean isInterface, String superName, String signature) {
+            this.isInterface = isInterface;
+            this.thisClass = classConstant(name);
+            this.superClass = classConstant(superName);
+            this.signature = utf8Constant(signature);
+        }
+
+        ClassFile implement(String interfaceName) {
+            interfaces.add(classConstant(interfaceName));
+            return this;
+        }
+
+        /**
+         * @param signature generic signature, null if the method is not generic
+         */
+        ClassFile method(String name, String descriptor, String signature) {
+            methods.add(new int[]{utf8Constant(name), utf8Constant(descriptor),
+                    signature != null ? utf8Constant(signature) : 0});
+            return this;
+        }
+
+        byte[] toBytes() {
+            int signatureAttribute = utf8Constant("Signature");
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(52);
+                out.writeShort(poolSize);
+                pool.writeTo(out);
+                out.writeShort(isInterface ? ACC_PUBLIC | ACC_INTERFACE | ACC_ABSTRACT
+                        : ACC_PUBLIC | ACC_SUPER | ACC_ABSTRACT);
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(interfaces.size());
+                for (int anInterface : interfaces) {
+                    out.writeShort(anInterface);
+                }
+                out.writeShort(0);
+                out.writeShort(methods.size());
+                for (int[] method : methods) {
+                    out.writeShort(ACC_PUBLIC | ACC_ABSTRACT);
+                    out.writeShort(method[0]);
+                    out.writeShort(method[1]);
+                    if (method[2] == 0) {
+                        out.writeShort(0);
+                    } else {
+                        out.writeShort(1);
+                        writeSignature(out, signatureAttribute, method[2]);
+                    }
+                }
+                out.writeShort(1);
+                writeSignature(out, signatureAttribute, signature);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        private static void writeSignature(DataOutputStream out, int attribute, int signature) throws IOException {
+            out.writeShort(attribute);
+            out.writeInt(2);
+            out.writeShort(signature);
+        }
+
+        private int utf8Constant(String value) {
+            Integer index = utf8.get(value);
+            if (index == null) {
+                try {
+                    poolOut.writeByte(1);
+                    poolOut.writeUTF(value);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                index = poolSize++;
+                utf8.put(value, index);
+            }
+            return index;
+        }
+
+        private int classConstant(String name) {
+            Integer index = classes.get(name);
+            if (index == null) {
+                int nameIndex = utf8Constant(name);
+                try {
+                    poolOut.writeByte(7);
+                    poolOut.writeShort(nameIndex);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                index = poolSize++;
+                classes.put(name, index);
+            }
+            return index;
+        }
+    }
+}
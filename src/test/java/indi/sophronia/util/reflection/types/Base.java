@@ -1,7 +1,10 @@
 package indi.sophronia.util.reflection.types;
 
+import indi.sophronia.util.reflection.PrecomputedMetaData;
+
 import java.util.HashMap;
 
+@PrecomputedMetaData
 public abstract class Base<K, V, A extends Number> extends HashMap<A, Integer> {
     @Override
     public Integer put(A key, Integer value) {
@@ -12,6 +15,7 @@ public abstract class Base<K, V, A extends Number> extends HashMap<A, Integer> {
         return null;
     }
 
+    @Marker("base")
     public K getK() {
         return null;
     }
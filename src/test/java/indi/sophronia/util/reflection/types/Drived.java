@@ -1,5 +1,8 @@
 package indi.sophronia.util.reflection.types;
 
+import indi.sophronia.util.reflection.PrecomputedMetaData;
+
+@PrecomputedMetaData
 public abstract class Drived<K, V, A, B> extends Base {
     @Override
     public Object put(Object key, Object value) {
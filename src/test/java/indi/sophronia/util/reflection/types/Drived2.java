@@ -1,5 +1,8 @@
 package indi.sophronia.util.reflection.types;
 
+import indi.sophronia.util.reflection.PrecomputedMetaData;
+
+@PrecomputedMetaData
 public class Drived2 <K, V, A, B> extends Base<V, K, Double> {
     @Override
     public Integer put(Double key, Integer value) {
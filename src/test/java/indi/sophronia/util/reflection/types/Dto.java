@@ -0,0 +1,56 @@
+package indi.sophronia.util.reflection.types;
+
+import java.util.List;
+
+public class Dto {
+    private Long id;
+    private CharSequence name;
+    private int version;
+    private boolean active;
+    private List<Object> tags;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public CharSequence getName() {
+        return name;
+    }
+
+    public void setName(CharSequence name) {
+        this.name = name;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public List<Object> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<Object> tags) {
+        this.tags = tags;
+    }
+
+    @Override
+    public String toString() {
+        return "Dto{id=" + id + ", name=" + name + ", version=" + version + ", active=" + active + ", tags=" + tags + '}';
+    }
+}
@@ -0,0 +1,33 @@
+package indi.sophronia.util.reflection.types;
+
+import java.util.List;
+
+public class Entity extends Model<Long> {
+    private int version;
+    private boolean active;
+    private List<String> tags;
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+}
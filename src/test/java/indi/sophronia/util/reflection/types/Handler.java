@@ -0,0 +1,19 @@
+package indi.sophronia.util.reflection.types;
+
+public class Handler<M extends CharSequence> {
+    public String handle(M message) {
+        return "message " + message;
+    }
+
+    public String handle(Object object) {
+        return "object " + object;
+    }
+
+    public String handle(Number number) {
+        return "number " + number;
+    }
+
+    public String handle(int value) {
+        return "int " + value;
+    }
+}
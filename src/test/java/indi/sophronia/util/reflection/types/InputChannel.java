@@ -0,0 +1,4 @@
+package indi.sophronia.util.reflection.types;
+
+public interface InputChannel<I> extends Channel<I> {
+}
@@ -0,0 +1,22 @@
+package indi.sophronia.util.reflection.types;
+
+public abstract class Model<I> {
+    private I id;
+    private String name;
+
+    public I getId() {
+        return id;
+    }
+
+    public void setId(I id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,10 @@
+package indi.sophronia.util.reflection.types;
+
+import indi.sophronia.util.reflection.PrecomputedMetaData;
+
+/**
+ * Reaches {@link Channel} through two generic interfaces, the first one found maps it
+ */
+@PrecomputedMetaData
+public class StringChannel implements InputChannel<String>, MappedChannel<Integer, String> {
+}
@@ -0,0 +1,8 @@
+package indi.sophronia.util.reflection.types;
+
+public class StringHandler extends Handler<String> {
+    @Override
+    public String handle(Number number) {
+        return "string handler number " + number;
+    }
+}